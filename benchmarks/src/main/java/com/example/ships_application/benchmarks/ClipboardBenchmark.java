@@ -0,0 +1,73 @@
+package com.example.ships_application.benchmarks;
+
+import com.example.ships_application.Groupable;
+import com.example.ships_application.Ship;
+import com.example.ships_application.ShipClipboard;
+import com.example.ships_application.ShipStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of copying a fleet to the clipboard and pasting it back, both as loose ships and as one big group.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClipboardBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int ships;
+
+    ArrayList<Groupable> looseShips;
+    ArrayList<Groupable> groupedShips;
+    ShipClipboard clipboard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        looseShips = new ArrayList<>(ships);
+        for (int i = 0; i < ships; i++) looseShips.add(new Ship(i, i));
+        groupedShips = new ArrayList<>();
+        groupedShips.add(Fleets.nestedGroup(new ArrayList<>(looseShips), 8));
+        clipboard = new ShipClipboard();
+        clipboard.add(groupedShips);
+    }
+
+    @Benchmark
+    public ShipClipboard copyLoose() {
+        ShipClipboard copy = new ShipClipboard();
+        copy.add(looseShips);
+        return copy;
+    }
+
+    @Benchmark
+    public ShipClipboard copyGroup() {
+        ShipClipboard copy = new ShipClipboard();
+        copy.add(groupedShips);
+        return copy;
+    }
+
+    @Benchmark
+    public ArrayList<Groupable> pasteGroup() {
+        return clipboard.get();
+    }
+
+    @Benchmark
+    public ArrayList<Groupable> pasteGroupIntoStore() {
+        return clipboard.get(new ShipStore(ships));
+    }
+}
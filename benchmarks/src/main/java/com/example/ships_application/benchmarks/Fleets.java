@@ -0,0 +1,66 @@
+package com.example.ships_application.benchmarks;
+
+import com.example.ships_application.Groupable;
+import com.example.ships_application.ShipGroup;
+import com.example.ships_application.ShipModel;
+import com.example.ships_application.ShipStore;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Class to build the scenes used by the benchmarks. Ships are scattered at random over a square world whose size grows
+ * with the number of ships, so the density of the scene stays about the same at every size.
+ */
+public class Fleets {
+    // space given to every ship in the world, in pixels
+    static final double AREA_PER_SHIP = 60 * 60;
+
+    /**
+     * Method to get the side of the square world for a number of ships.
+     *
+     * @param count : number of ships
+     * @return : width and height of the world
+     */
+    public static double worldSize(int count) {
+        return Math.sqrt(count * AREA_PER_SHIP);
+    }
+
+    /**
+     * Method to create a model with ships scattered at random.
+     *
+     * @param count : number of ships
+     * @param seed  : seed of the random positions
+     * @return : new model
+     */
+    public static ShipModel scatteredModel(int count, long seed) {
+        Random random = new Random(seed);
+        double size = worldSize(count);
+        ShipModel model = new ShipModel(new ShipStore(count));
+        for (int i = 0; i < count; i++) {
+            model.createShip(random.nextDouble() * size, random.nextDouble() * size);
+        }
+        return model;
+    }
+
+    /**
+     * Method to build a balanced tree of nested groups over a list of ships.
+     *
+     * @param leaves : ships to group
+     * @param fanOut : number of children of every group
+     * @return : root group of the tree
+     */
+    public static Groupable nestedGroup(ArrayList<Groupable> leaves, int fanOut) {
+        ArrayList<Groupable> level = leaves;
+        while (level.size() > 1) {
+            ArrayList<Groupable> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += fanOut) {
+                ShipGroup group = new ShipGroup();
+                level.subList(i, Math.min(level.size(), i + fanOut)).forEach(group::addChild);
+                next.add(group);
+            }
+            level = next;
+        }
+        return level.get(0);
+    }
+}
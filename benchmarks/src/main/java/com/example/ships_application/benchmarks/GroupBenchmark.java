@@ -0,0 +1,79 @@
+package com.example.ships_application.benchmarks;
+
+import com.example.ships_application.Groupable;
+import com.example.ships_application.Ship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of operations on a deeply nested ShipGroup: hit testing, rubber-band containment, moving and copying.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GroupBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int ships;
+
+    @Param({"8"})
+    int fanOut;
+
+    Groupable group;
+    Random random;
+    double worldSize;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random positions = new Random(42);
+        worldSize = Fleets.worldSize(ships);
+        ArrayList<Groupable> leaves = new ArrayList<>(ships);
+        for (int i = 0; i < ships; i++) {
+            leaves.add(new Ship(positions.nextDouble() * worldSize, positions.nextDouble() * worldSize));
+        }
+        group = Fleets.nestedGroup(leaves, fanOut);
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return group.contains(random.nextDouble() * worldSize, random.nextDouble() * worldSize);
+    }
+
+    @Benchmark
+    public boolean isContainedPartially() {
+        return group.isContained(0, 0, worldSize / 2, worldSize);
+    }
+
+    @Benchmark
+    public boolean isContainedFully() {
+        return group.isContained(-1, -1, worldSize + 1, worldSize + 1);
+    }
+
+    @Benchmark
+    public void move() {
+        group.move(1, 1);
+        group.move(-1, -1);
+    }
+
+    @Benchmark
+    public Groupable duplicate() {
+        return group.duplicate();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.ships_application.benchmarks;
+
+import com.example.ships_application.Groupable;
+import com.example.ships_application.RubberBandRectangle;
+import com.example.ships_application.ShipModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the ShipModel hot paths: hit testing, rubber-band selection, moving a selection and grouping.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int ships;
+
+    // number of ships in the selection that is moved, grouped and ungrouped
+    static final int SELECTION = 100;
+
+    ShipModel model;
+    ArrayList<Groupable> selection;
+    RubberBandRectangle rubberBand;
+    Random random;
+    double worldSize;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = Fleets.scatteredModel(ships, 42);
+        worldSize = Fleets.worldSize(ships);
+        selection = new ArrayList<>(model.getShips().subList(0, Math.min(SELECTION, ships)));
+        // rubber band covering about 1% of the world
+        double side = worldSize / 10;
+        rubberBand = new RubberBandRectangle(worldSize / 2, worldSize / 2);
+        rubberBand.resize(worldSize / 2, worldSize / 2, worldSize / 2 + side, worldSize / 2 + side);
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public Optional<Groupable> detectHit() {
+        return model.detectHit(random.nextDouble() * worldSize, random.nextDouble() * worldSize);
+    }
+
+    @Benchmark
+    public ArrayList<Groupable> detectRubberBandHit() {
+        return model.detectRubberBandHit(rubberBand);
+    }
+
+    @Benchmark
+    public void moveSelection() {
+        model.move(selection, 1, 1);
+        model.move(selection, -1, -1);
+    }
+
+    @Benchmark
+    public ArrayList<Groupable> createGroupAndUngroup() {
+        return model.ungroup(model.createGroup(selection));
+    }
+}
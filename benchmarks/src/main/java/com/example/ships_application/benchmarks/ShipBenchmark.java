@@ -0,0 +1,63 @@
+package com.example.ships_application.benchmarks;
+
+import com.example.ships_application.Groupable;
+import com.example.ships_application.Ship;
+import com.example.ships_application.ShipStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of creating and duplicating fleets of ships.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShipBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int ships;
+
+    Ship[] fleet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = new Ship[ships];
+        for (int i = 0; i < ships; i++) fleet[i] = new Ship(i, i);
+    }
+
+    @Benchmark
+    public Ship[] construct() {
+        Ship[] created = new Ship[ships];
+        for (int i = 0; i < ships; i++) created[i] = new Ship(i, i);
+        return created;
+    }
+
+    @Benchmark
+    public Ship[] constructInStore() {
+        ShipStore store = new ShipStore(ships);
+        Ship[] created = new Ship[ships];
+        for (int i = 0; i < ships; i++) created[i] = new Ship(store, fleet[i].getShape(), i, i);
+        return created;
+    }
+
+    @Benchmark
+    public Groupable[] duplicate() {
+        Groupable[] copies = new Groupable[ships];
+        for (int i = 0; i < ships; i++) copies[i] = fleet[i].duplicate();
+        return copies;
+    }
+}
@@ -0,0 +1,883 @@
+package com.example.ships_application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Class to autosave the model by appending every change to a log instead of saving the whole scene. The log
+ * subscribes to the model and turns each event into a small record on the FX thread, and a background thread writes
+ * the records out and syncs them to disk in batches, so the FX thread never waits for the disk. Once the log has
+ * grown past the size of the scene it is compacted: a snapshot of the model is written in the scene format and a new,
+ * empty log is started. On startup the latest snapshot and the log written after it are replayed into the model.
+ * <p>
+ * Ships and groups are referred to by ids. The items of a snapshot are numbered in preorder, and every item that
+ * appears later gets the next free id. Files of generation g are named snapshot-g.ships and log-g.bin in the autosave
+ * directory, and a log is only replayed on top of the snapshot of the same generation.
+ */
+public class AutosaveLog implements ShipModelSubscriber {
+    /*
+        Types of records in the log. Moves, repositions and rotations apply to the items of the last SELECT record, so
+        a gesture names its items once and the records after it only hold distances and angles.
+     */
+    static final byte DEFINE_SHAPE = 1;
+    static final byte ADD = 2;
+    static final byte REMOVE = 3;
+    static final byte GROUP = 4;
+    static final byte UNGROUP = 5;
+    static final byte SELECT = 6;
+    static final byte MOVE = 7;
+    static final byte REPOSITION = 8;
+    static final byte ROTATE = 9;
+    // tags of the top-level items of an ADD record, and of the nodes of a new tree
+    static final byte RESTORED_ITEM = 0;
+    static final byte NEW_ITEM = 1;
+    static final byte SHIP_NODE = 0;
+    static final byte GROUP_NODE = 1;
+    static final byte ROTATED_SHIP_NODE = 2;
+
+    /*
+        How often the log is synced to disk at most, and the smallest log that is compacted. A bigger log is only
+        compacted once it is larger than twice the size of a snapshot of the scene.
+     */
+    public static final long SYNC_INTERVAL_MILLIS = 200;
+    public static final long MIN_COMPACTION_BYTES = 4L << 20;
+    static final int SNAPSHOT_SHIP_BYTES = 21;
+
+    /**
+     * Class to represent a record waiting to be written. Moves, rotations and repositions keep the ids of the moved
+     * items, so that the writer can merge consecutive moves of the same items into one record and only writes the ids
+     * again when they change. A compaction carries the snapshot to write, and a flush the latch to open once
+     * everything before it is on disk.
+     */
+    static class Record {
+        final byte type;
+        final byte[] data;
+        final int[] ids;
+        double dX, dY;
+        double[] dXs, dYs;
+        double angle, pivotX, pivotY;
+        final ShipClipboard.Snapshot snapshot;
+        CountDownLatch written;
+
+        Record(byte type, byte[] data, int[] ids, ShipClipboard.Snapshot snapshot) {
+            this.type = type;
+            this.data = data;
+            this.ids = ids;
+            this.snapshot = snapshot;
+        }
+    }
+
+    // record telling the writer to finish
+    static final Record STOP = new Record((byte) 0, null, null, null);
+
+    /*
+        Instance variables used on the FX thread: the model, the id of every known item, the shapes defined in the
+        current log, the ids of the list moves were last reported with, and the repositions added up since they were
+        last queued, with the time the first of them came in.
+     */
+    final Path directory;
+    ShipModel model;
+    IdentityHashMap<Groupable, Integer> ids;
+    int nextId;
+    BitSet definedShapes;
+    List<Groupable> lastMoveSource;
+    int[] lastMoveIds;
+    Record pendingReposition;
+    long repositionStart;
+
+    /*
+        Instance variables shared with the writer thread: records to write, the generation of the files, the bytes
+        appended to the current log, whether a compaction has been queued but not written yet, whether the writer
+        stopped on an error, and who is told when it does.
+     */
+    final LinkedBlockingQueue<Record> queue;
+    Thread writer;
+    long generation;
+    volatile long logBytes;
+    volatile boolean compacting;
+    volatile boolean failed;
+    Consumer<IOException> failureHandler;
+
+    /*
+        How often the log is synced and the smallest log that is compacted, set before recovering.
+     */
+    long syncIntervalMillis;
+    long minCompactionBytes;
+
+    /*
+        Instance variables used by the writer thread: the ids the moves in the log apply to.
+     */
+    int[] writtenSelection;
+
+    // items the moves being replayed apply to
+    ArrayList<Groupable> replayedSelection;
+
+    /**
+     * Constructor for this class.
+     *
+     * @param directory : directory the snapshot and log are kept in
+     */
+    public AutosaveLog(Path directory) {
+        this.directory = directory;
+        ids = new IdentityHashMap<>();
+        definedShapes = new BitSet();
+        queue = new LinkedBlockingQueue<>();
+        syncIntervalMillis = SYNC_INTERVAL_MILLIS;
+        minCompactionBytes = MIN_COMPACTION_BYTES;
+    }
+
+    /**
+     * Method to set who is told when the log can no longer be written. It is told once, on the writer thread, and
+     * no changes are queued after that.
+     *
+     * @param failureHandler : receives the error that stopped the writer
+     */
+    public void setFailureHandler(Consumer<IOException> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Method to check if the writer stopped on an error, so changes are no longer saved.
+     *
+     * @return : true if autosaving failed else false
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Method to replay the latest snapshot and the log written after it into an empty model, and start the writer.
+     * The log should be subscribed to the model after this.
+     *
+     * @param model : model to restore the scene into
+     * @throws IOException : if the autosave files cannot be read or written
+     */
+    public void recover(ShipModel model) throws IOException {
+        this.model = model;
+        Files.createDirectories(directory);
+        generation = latestGeneration();
+        ArrayList<Groupable> byId = new ArrayList<>();
+        Path snapshot = snapshotPath(generation);
+        if (Files.exists(snapshot)) {
+            SceneFile.load(snapshot, model);
+            model.getShips().forEach(item -> number(item, byId));
+        }
+        Path log = logPath(generation);
+        long validBytes = Files.exists(log) ? replay(log, byId) : 0;
+        for (int id = 0; id < byId.size(); id++) {
+            if (byId.get(id) != null) ids.put(byId.get(id), id);
+        }
+        nextId = byId.size();
+        logBytes = validBytes;
+        // drop a record that was cut off by a crash, new records are appended after the last whole one
+        FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validBytes);
+        channel.position(validBytes);
+        writer = new Thread(() -> writeLoop(channel), "autosave-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Method to write out every record still waiting and stop the writer.
+     *
+     * @throws InterruptedException : if interrupted while waiting for the writer
+     */
+    public void close() throws InterruptedException {
+        if (writer == null) return;
+        seal();
+        queue.add(STOP);
+        writer.join();
+        writer = null;
+    }
+
+    /**
+     * Method to wait until every change so far is written and synced to disk.
+     *
+     * @throws InterruptedException : if interrupted while waiting for the writer
+     */
+    void flush() throws InterruptedException {
+        if (writer == null || failed) return;
+        seal();
+        Record marker = new Record((byte) 0, null, null, null);
+        marker.written = new CountDownLatch(1);
+        queue.add(marker);
+        marker.written.await();
+    }
+
+    /**
+     * Method to queue the repositions added up so far, e.g. once the fleet they move has stopped. Until then they are
+     * queued at most once per sync interval, or before the next other change.
+     */
+    public void seal() {
+        if (pendingReposition == null) return;
+        queue.add(pendingReposition);
+        pendingReposition = null;
+    }
+
+    /**
+     * Method to start a new log from a snapshot of the model. The snapshot is taken on the FX thread and written by
+     * the writer thread.
+     */
+    public void compact() {
+        ids.clear();
+        nextId = 0;
+        model.getShips().forEach(this::number);
+        definedShapes.clear();
+        lastMoveSource = null;
+        // the snapshot already has the ships where the repositions put them
+        pendingReposition = null;
+        compacting = true;
+        queue.add(new Record((byte) 0, null, null, ShipClipboard.Snapshot.of(model.getShips())));
+    }
+
+    /**
+     * Method runs when the model has a change without details. It cannot be logged, so the log is compacted.
+     */
+    @Override
+    public void modelChanged() {
+        if (!failed) compact();
+    }
+
+    /**
+     * Method runs when the model has a change. The change is queued as a record for the writer, and the log is
+     * compacted once it has grown large enough.
+     *
+     * @param event : change that happened
+     */
+    @Override
+    public void modelChanged(ShipModelEvent event) {
+        if (failed) return;
+        try {
+            switch (event.getType()) {
+                case SHIPS_ADDED -> enqueue(ADD, encodeAdd(event.getAffected()));
+                case SHIPS_REMOVED -> enqueue(REMOVE, encodeIds(event.getAffected()));
+                case SHIPS_MOVED -> {
+                    Record move = new Record(MOVE, null, moveIds(event.getAffected()), null);
+                    move.dX = event.getDX();
+                    move.dY = event.getDY();
+                    submit(move);
+                }
+                case SHIPS_ROTATED -> {
+                    Record rotation = new Record(ROTATE, null, moveIds(event.getAffected()), null);
+                    rotation.angle = event.getAngle();
+                    rotation.pivotX = event.getPivotX();
+                    rotation.pivotY = event.getPivotY();
+                    submit(rotation);
+                }
+                case SHIPS_REPOSITIONED -> addReposition(event);
+                case GROUP_CREATED -> {
+                    Groupable group = event.getGroup();
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    DataOutputStream out = new DataOutputStream(bytes);
+                    Integer id = ids.get(group);
+                    if (id == null) {
+                        id = nextId++;
+                        ids.put(group, id);
+                    }
+                    out.writeInt(id);
+                    out.write(encodeIds(group.getChildren()));
+                    enqueue(GROUP, bytes.toByteArray());
+                }
+                case GROUP_DISSOLVED -> {
+                    enqueue(UNGROUP, ByteBuffer.allocate(4).putInt(ids.get(event.getGroup())).array());
+                }
+                default -> {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        switch (event.getType()) {
+            case SHIPS_MOVED, SHIPS_ROTATED, SHIPS_REPOSITIONED -> {
+                // a drag of the same selection shares its ids
+            }
+            default -> lastMoveSource = null;
+        }
+        long threshold = Math.max(minCompactionBytes, 2L * SNAPSHOT_SHIP_BYTES * model.getStore().size());
+        if (!compacting && logBytes > threshold) compact();
+    }
+
+    /**
+     * Helper method to get the ids of moved items. The ids are looked up again only when the items are reported with
+     * another list than the last move, so every frame of a drag shares one array.
+     *
+     * @param moved : moved ships/groups
+     * @return : ids of the moved items, in the same order
+     */
+    private int[] moveIds(List<Groupable> moved) {
+        if (moved != lastMoveSource) {
+            lastMoveSource = moved;
+            lastMoveIds = new int[moved.size()];
+            for (int i = 0; i < lastMoveIds.length; i++) lastMoveIds[i] = ids.get(moved.get(i));
+        }
+        return lastMoveIds;
+    }
+
+    /**
+     * Helper method to add up a reposition, e.g. a frame of a simulation, with the ones before it. The sum is queued
+     * once the first of them is a sync interval old, so a fleet moving every pulse writes a few records per second.
+     *
+     * @param event : reposition that happened
+     */
+    private void addReposition(ShipModelEvent event) {
+        int[] moved = moveIds(event.getAffected());
+        double[] dXs = event.getDXs(), dYs = event.getDYs();
+        long now = System.currentTimeMillis();
+        if (pendingReposition == null || pendingReposition.ids != moved) {
+            seal();
+            pendingReposition = new Record(REPOSITION, null, moved, null);
+            // the event buffers are reused by the next frame, and the writer may add into these
+            pendingReposition.dXs = dXs.clone();
+            pendingReposition.dYs = dYs.clone();
+            repositionStart = now;
+        } else {
+            for (int i = 0; i < dXs.length; i++) {
+                pendingReposition.dXs[i] += dXs[i];
+                pendingReposition.dYs[i] += dYs[i];
+            }
+        }
+        if (now - repositionStart >= SYNC_INTERVAL_MILLIS) seal();
+    }
+
+    /**
+     * Helper method to queue a record for the writer, after the repositions added up before it.
+     *
+     * @param record : record to write
+     */
+    private void submit(Record record) {
+        seal();
+        queue.add(record);
+    }
+
+    /**
+     * Helper method to queue a record for the writer.
+     *
+     * @param type : type of the record
+     * @param data : content of the record
+     */
+    private void enqueue(byte type, byte[] data) {
+        submit(new Record(type, data, null, null));
+    }
+
+    /**
+     * Helper method to encode added ships/groups. Items that already have an id are only referred to, new items are
+     * written out in full and numbered in preorder.
+     *
+     * @param items : added ships/groups
+     * @return : content of an ADD record
+     * @throws IOException : never, the record is built in memory
+     */
+    private byte[] encodeAdd(List<Groupable> items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(items.size());
+        for (Groupable item : items) {
+            Integer id = ids.get(item);
+            if (id != null) {
+                out.writeByte(RESTORED_ITEM);
+                out.writeInt(id);
+            } else {
+                out.writeByte(NEW_ITEM);
+                encodeTree(item, out);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Helper method to write a new ship/group in preorder, giving every node the next free id. A shape is defined in
+     * the log before the first ship that uses it.
+     *
+     * @param item : new ship/group
+     * @param out  : stream to write to
+     * @throws IOException : never, the record is built in memory
+     */
+    private void encodeTree(Groupable item, DataOutputStream out) throws IOException {
+        ids.put(item, nextId++);
+        if (!item.hasChildren()) {
+            Ship ship = (Ship) item;
+            int shapeId = ship.store.shapeId[ship.slot];
+            double angle = ship.store.angle[ship.slot];
+            if (!definedShapes.get(shapeId)) defineShape(ShipShape.byId(shapeId));
+            out.writeByte(angle == 0 ? SHIP_NODE : ROTATED_SHIP_NODE);
+            out.writeInt(shapeId);
+            out.writeDouble(ship.store.translateX[ship.slot]);
+            out.writeDouble(ship.store.translateY[ship.slot]);
+            if (angle != 0) out.writeDouble(angle);
+        } else {
+            out.writeByte(GROUP_NODE);
+            out.writeInt(item.getChildren().size());
+            for (Groupable child : item.getChildren()) encodeTree(child, out);
+        }
+    }
+
+    /**
+     * Helper method to queue the definition of a shape.
+     *
+     * @param shape : shape used by a ship in the log
+     * @throws IOException : never, the record is built in memory
+     */
+    private void defineShape(ShipShape shape) throws IOException {
+        definedShapes.set(shape.id);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(shape.id);
+        byte[] name = shape.name.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeInt(shape.xs.length);
+        for (double x : shape.xs) out.writeDouble(x);
+        for (double y : shape.ys) out.writeDouble(y);
+        enqueue(DEFINE_SHAPE, bytes.toByteArray());
+    }
+
+    /**
+     * Helper method to encode the ids of ships/groups.
+     *
+     * @param items : ships/groups that all have ids
+     * @return : count followed by the ids
+     */
+    private byte[] encodeIds(List<Groupable> items) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * items.size());
+        buffer.putInt(items.size());
+        items.forEach(item -> buffer.putInt(ids.get(item)));
+        return buffer.array();
+    }
+
+    /**
+     * Helper method to give a ship/group and all of its children the next free ids in preorder.
+     *
+     * @param item : ship/group to number
+     */
+    private void number(Groupable item) {
+        ids.put(item, nextId++);
+        if (item.hasChildren()) item.getChildren().forEach(this::number);
+    }
+
+    /**
+     * Helper method to list a ship/group and all of its children in preorder, which is the order of their ids.
+     *
+     * @param item : ship/group to list
+     * @param byId : items by id
+     */
+    private static void number(Groupable item, ArrayList<Groupable> byId) {
+        byId.add(item);
+        if (item.hasChildren()) item.getChildren().forEach(child -> number(child, byId));
+    }
+
+    /**
+     * Helper method to apply the records of a log to the model. Reading stops at the first record that is cut off or
+     * does not match its checksum.
+     *
+     * @param log  : log to replay
+     * @param byId : items by id, extended with the items the log adds
+     * @return : length of the log up to the end of the last whole record
+     * @throws IOException : if the log cannot be read
+     */
+    private long replay(Path log, ArrayList<Groupable> byId) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(log));
+        // shapes of the log, by the id they had when it was written
+        HashMap<Integer, ShipShape> shapes = new HashMap<>();
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            long checksum = buffer.getInt() & 0xffffffffL;
+            if (length < 1 || length > buffer.remaining()) return start;
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if (crc.getValue() != checksum) return start;
+            ByteBuffer record = buffer.slice(buffer.position(), length);
+            int known = byId.size();
+            try {
+                apply(record, byId, shapes);
+            } catch (RuntimeException e) {
+                // the record does not fit the scene it follows, so it and everything after it are dropped
+                System.err.println("Autosave log is corrupt at " + start + ": " + e);
+                byId.subList(known, byId.size()).clear();
+                return start;
+            }
+            buffer.position(buffer.position() + length);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Helper method to apply one record of a log to the model. Ids and counts are checked before the model is
+     * changed, and a record that does not fit throws a runtime exception.
+     *
+     * @param record : type and content of the record
+     * @param byId   : items by id
+     * @param shapes : shapes defined in the log, by the id they had when it was written
+     */
+    private void apply(ByteBuffer record, ArrayList<Groupable> byId, HashMap<Integer, ShipShape> shapes) {
+        switch (record.get()) {
+            case DEFINE_SHAPE -> {
+                int id = record.getInt();
+                byte[] name = new byte[record.getShort() & 0xffff];
+                record.get(name);
+                double[] xs = new double[count(record, 16)], ys = new double[xs.length];
+                for (int i = 0; i < xs.length; i++) xs[i] = record.getDouble();
+                for (int i = 0; i < ys.length; i++) ys[i] = record.getDouble();
+                shapes.put(id, ShipShape.register(new String(name, StandardCharsets.UTF_8), xs, ys));
+            }
+            case ADD -> {
+                ArrayList<Groupable> items = new ArrayList<>();
+                for (int i = count(record, 5); i > 0; i--) {
+                    items.add(record.get() == RESTORED_ITEM ? item(byId, record.getInt())
+                            : readTree(record, byId, shapes));
+                }
+                model.add(items);
+            }
+            case REMOVE -> model.remove(readIds(record, byId));
+            case GROUP -> {
+                int id = record.getInt();
+                Groupable group = model.createGroup(readIds(record, byId));
+                while (byId.size() <= id) byId.add(null);
+                byId.set(id, group);
+            }
+            case UNGROUP -> model.ungroup(item(byId, record.getInt()));
+            case SELECT -> replayedSelection = readIds(record, byId);
+            case MOVE -> {
+                double dX = record.getDouble(), dY = record.getDouble();
+                model.move(selection(), dX, dY);
+            }
+            case REPOSITION -> {
+                ArrayList<Groupable> items = selection();
+                if (record.remaining() != 16L * items.size()) {
+                    throw new IllegalStateException("Reposition of " + items.size() + " items has the wrong size");
+                }
+                double[] dXs = new double[items.size()], dYs = new double[dXs.length];
+                for (int i = 0; i < dXs.length; i++) {
+                    dXs[i] = record.getDouble();
+                    dYs[i] = record.getDouble();
+                }
+                model.reposition(items, dXs, dYs);
+            }
+            case ROTATE -> {
+                double angle = record.getDouble(), pivotX = record.getDouble(), pivotY = record.getDouble();
+                model.rotate(selection(), angle, pivotX, pivotY);
+            }
+            default -> throw new IllegalStateException("Unknown record type");
+        }
+    }
+
+    /**
+     * Helper method to get the items the moves being replayed apply to.
+     *
+     * @return : items of the last SELECT record
+     */
+    private ArrayList<Groupable> selection() {
+        if (replayedSelection == null) throw new IllegalStateException("Move before any selection");
+        return replayedSelection;
+    }
+
+    /**
+     * Helper method to read a count and check that the rest of the record can hold that many entries.
+     *
+     * @param record     : record positioned at the count
+     * @param entryBytes : smallest size of an entry
+     * @return : count
+     */
+    private static int count(ByteBuffer record, int entryBytes) {
+        int count = record.getInt();
+        if (count < 0 || count > record.remaining() / entryBytes) throw new IllegalStateException("Bad count " + count);
+        return count;
+    }
+
+    /**
+     * Helper method to look up an item by id.
+     *
+     * @param byId : items by id
+     * @param id   : id of an item
+     * @return : the item
+     */
+    private static Groupable item(ArrayList<Groupable> byId, int id) {
+        Groupable item = id >= 0 && id < byId.size() ? byId.get(id) : null;
+        if (item == null) throw new IllegalStateException("Unknown id " + id);
+        return item;
+    }
+
+    /**
+     * Helper method to build a new ship/group of an ADD record, giving every node the next id.
+     *
+     * @param record : record positioned at the tree
+     * @param byId   : items by id
+     * @param shapes : shapes defined in the log
+     * @return : new ship/group
+     */
+    private Groupable readTree(ByteBuffer record, ArrayList<Groupable> byId, HashMap<Integer, ShipShape> shapes) {
+        int id = byId.size();
+        byId.add(null);
+        Groupable item;
+        byte node = record.get();
+        if (node != GROUP_NODE) {
+            ShipShape shape = shapes.get(record.getInt());
+            double x = record.getDouble(), y = record.getDouble();
+            item = new Ship(model.getStore(), shape, x, y, node == ROTATED_SHIP_NODE ? record.getDouble() : 0);
+        } else {
+            int children = record.getInt();
+            ArrayList<Groupable> ships = new ArrayList<>(children);
+            for (int i = 0; i < children; i++) ships.add(readTree(record, byId, shapes));
+            ShipGroup group = new ShipGroup();
+            group.setShips(ships);
+            item = group;
+        }
+        byId.set(id, item);
+        return item;
+    }
+
+    /**
+     * Helper method to read a count followed by ids.
+     *
+     * @param record : record positioned at the count
+     * @param byId   : items by id
+     * @return : list of the items
+     */
+    private static ArrayList<Groupable> readIds(ByteBuffer record, ArrayList<Groupable> byId) {
+        int count = count(record, 4);
+        ArrayList<Groupable> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) items.add(item(byId, record.getInt()));
+        return items;
+    }
+
+    /**
+     * Helper method run by the writer thread. Records are written as they arrive and the log is synced at most once
+     * per sync interval, or as soon as nothing is left to write. Moves of the same items are merged until another
+     * record arrives or the log is synced, so a long drag only writes a few records.
+     *
+     * @param channel : log to append to
+     */
+    private void writeLoop(FileChannel channel) {
+        ArrayList<Record> batch = new ArrayList<>();
+        Record pendingMove = null;
+        long lastSync = System.currentTimeMillis();
+        boolean unsynced = false;
+        try {
+            boolean stop = false;
+            while (!stop) {
+                Record first = unsynced || pendingMove != null
+                        ? queue.poll(syncIntervalMillis, TimeUnit.MILLISECONDS) : queue.take();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+                for (Record r : batch) {
+                    if (r == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    if (r.ids != null && pendingMove != null && pendingMove.type == r.type
+                            && pendingMove.ids == r.ids && pendingMove.pivotX == r.pivotX
+                            && pendingMove.pivotY == r.pivotY) {
+                        // same items are still being moved, merge into the move waiting to be written
+                        pendingMove.dX += r.dX;
+                        pendingMove.dY += r.dY;
+                        pendingMove.angle += r.angle;
+                        if (r.dXs != null) {
+                            for (int i = 0; i < r.dXs.length; i++) {
+                                pendingMove.dXs[i] += r.dXs[i];
+                                pendingMove.dYs[i] += r.dYs[i];
+                            }
+                        }
+                        continue;
+                    }
+                    if (pendingMove != null) {
+                        appendMove(channel, pendingMove);
+                        pendingMove = null;
+                        unsynced = true;
+                    }
+                    if (r.ids != null) {
+                        pendingMove = r;
+                    } else if (r.snapshot != null) {
+                        channel.force(false);
+                        channel.close();
+                        channel = startGeneration(r.snapshot);
+                        unsynced = false;
+                    } else if (r.written != null) {
+                        channel.force(false);
+                        unsynced = false;
+                        r.written.countDown();
+                    } else {
+                        append(channel, r.type, r.data);
+                        unsynced = true;
+                    }
+                }
+                batch.clear();
+                long now = System.currentTimeMillis();
+                if (stop || first == null || now - lastSync >= syncIntervalMillis) {
+                    if (pendingMove != null) {
+                        appendMove(channel, pendingMove);
+                        pendingMove = null;
+                        unsynced = true;
+                    }
+                    if (unsynced) {
+                        channel.force(false);
+                        unsynced = false;
+                    }
+                    lastSync = now;
+                }
+            }
+        } catch (IOException e) {
+            // nothing drains the queue from now on, so no more changes are queued and waiting flushes are let go
+            failed = true;
+            if (failureHandler != null) {
+                failureHandler.accept(e);
+            } else {
+                System.err.println("Autosave stopped: " + e.getMessage());
+            }
+            queue.drainTo(batch);
+            batch.forEach(r -> {
+                if (r.written != null) r.written.countDown();
+            });
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to save
+            }
+        }
+    }
+
+    /**
+     * Helper method to write a move, rotation or reposition record. A move, rotation or reposition of other items
+     * than the last one is preceded by a record selecting them.
+     *
+     * @param channel : log to append to
+     * @param move    : move to write
+     * @throws IOException : if the log cannot be written
+     */
+    private void appendMove(FileChannel channel, Record move) throws IOException {
+        if (move.ids != writtenSelection) {
+            ByteBuffer data = ByteBuffer.allocate(4 + 4 * move.ids.length);
+            data.putInt(move.ids.length);
+            for (int id : move.ids) data.putInt(id);
+            append(channel, SELECT, data.array());
+            writtenSelection = move.ids;
+        }
+        if (move.type == ROTATE) {
+            ByteBuffer data = ByteBuffer.allocate(24);
+            data.putDouble(move.angle).putDouble(move.pivotX).putDouble(move.pivotY);
+            append(channel, ROTATE, data.array());
+            return;
+        }
+        if (move.type == REPOSITION) {
+            ByteBuffer data = ByteBuffer.allocate(16 * move.ids.length);
+            for (int i = 0; i < move.ids.length; i++) data.putDouble(move.dXs[i]).putDouble(move.dYs[i]);
+            append(channel, REPOSITION, data.array());
+            return;
+        }
+        append(channel, MOVE, ByteBuffer.allocate(16).putDouble(move.dX).putDouble(move.dY).array());
+    }
+
+    /**
+     * Helper method to write a record with its length and checksum, and count it towards the size of the log.
+     *
+     * @param channel : log to append to
+     * @param type    : type of the record
+     * @param data    : content of the record
+     * @throws IOException : if the log cannot be written
+     */
+    private void append(FileChannel channel, byte type, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data);
+        ByteBuffer buffer = ByteBuffer.allocate(9 + data.length);
+        buffer.putInt(1 + data.length).putInt((int) crc.getValue()).put(type).put(data).flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        // only the writer changes the size, the FX thread reads it to decide when to compact
+        logBytes += buffer.limit();
+    }
+
+    /**
+     * Helper method run by the writer thread to write a snapshot as the next generation and start its empty log. The
+     * files of the previous generation are deleted once the new ones are in place.
+     *
+     * @param snapshot : snapshot of the model
+     * @return : log of the new generation
+     * @throws IOException : if the files cannot be written
+     */
+    private FileChannel startGeneration(ShipClipboard.Snapshot snapshot) throws IOException {
+        long next = generation + 1;
+        Path temp = directory.resolve("snapshot.tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SceneFile.write(out, snapshot);
+            out.force(false);
+        }
+        Files.move(temp, snapshotPath(next), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel log = FileChannel.open(logPath(next), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        Files.deleteIfExists(logPath(generation));
+        Files.deleteIfExists(snapshotPath(generation));
+        generation = next;
+        writtenSelection = null;
+        logBytes = 0;
+        compacting = false;
+        return log;
+    }
+
+    /**
+     * Helper method to find the newest generation that has a snapshot.
+     *
+     * @return : newest generation, or 0 if there is no snapshot yet
+     * @throws IOException : if the directory cannot be listed
+     */
+    private long latestGeneration() throws IOException {
+        long latest = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("snapshot-") && name.endsWith(".ships")) {
+                    latest = Math.max(latest, Long.parseLong(name.substring(9, name.length() - 6)));
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Helper method to get the snapshot file of a generation.
+     *
+     * @param generation : generation of the snapshot
+     * @return : path of the snapshot
+     */
+    private Path snapshotPath(long generation) {
+        return directory.resolve("snapshot-" + generation + ".ships");
+    }
+
+    /**
+     * Helper method to get the log file of a generation.
+     *
+     * @param generation : generation of the log
+     * @return : path of the log
+     */
+    private Path logPath(long generation) {
+        return directory.resolve("log-" + generation + ".bin");
+    }
+}
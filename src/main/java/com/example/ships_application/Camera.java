@@ -0,0 +1,117 @@
+package com.example.ships_application;
+
+/**
+ * Class to represent the part of the world shown on screen. The world has no edges: the camera stores the world point
+ * at the top left corner of the screen and how many screen pixels a world unit takes, and converts coordinates between
+ * the two.
+ */
+public class Camera {
+    // limits of the zoom factor
+    public static final double MIN_ZOOM = 0.005;
+    public static final double MAX_ZOOM = 40;
+
+    /*
+        Instance variables to store the world point at the top left corner of the screen and the zoom factor.
+     */
+    double x, y;
+    double zoom;
+
+    /**
+     * Default constructor for this class. Shows the world from its origin at a zoom of 1.
+     */
+    public Camera() {
+        zoom = 1;
+    }
+
+    /**
+     * Method to convert a screen x coordinate to a world x coordinate.
+     *
+     * @param screenX : x coordinate on screen
+     * @return : x coordinate in the world
+     */
+    public double toWorldX(double screenX) {
+        return x + screenX / zoom;
+    }
+
+    /**
+     * Method to convert a screen y coordinate to a world y coordinate.
+     *
+     * @param screenY : y coordinate on screen
+     * @return : y coordinate in the world
+     */
+    public double toWorldY(double screenY) {
+        return y + screenY / zoom;
+    }
+
+    /**
+     * Method to convert a world x coordinate to a screen x coordinate.
+     *
+     * @param worldX : x coordinate in the world
+     * @return : x coordinate on screen
+     */
+    public double toScreenX(double worldX) {
+        return (worldX - x) * zoom;
+    }
+
+    /**
+     * Method to convert a world y coordinate to a screen y coordinate.
+     *
+     * @param worldY : y coordinate in the world
+     * @return : y coordinate on screen
+     */
+    public double toScreenY(double worldY) {
+        return (worldY - y) * zoom;
+    }
+
+    /**
+     * Method to move the camera by a distance in the world.
+     *
+     * @param dX : distance to move on x coordinate
+     * @param dY : distance to move on y coordinate
+     */
+    public void pan(double dX, double dY) {
+        x += dX;
+        y += dY;
+    }
+
+    /**
+     * Method to zoom in or out while keeping the world point under a screen point in place.
+     *
+     * @param screenX : x coordinate on screen to zoom around
+     * @param screenY : y coordinate on screen to zoom around
+     * @param factor  : factor to multiply the zoom by, above 1 zooms in
+     */
+    public void zoomAt(double screenX, double screenY, double factor) {
+        double worldX = toWorldX(screenX), worldY = toWorldY(screenY);
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        x = worldX - screenX / zoom;
+        y = worldY - screenY / zoom;
+    }
+
+    /**
+     * Method to get the world x coordinate at the left edge of the screen.
+     *
+     * @return : x coordinate in the world
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Method to get the world y coordinate at the top edge of the screen.
+     *
+     * @return : y coordinate in the world
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Method to get how many screen pixels a world unit takes.
+     *
+     * @return : zoom factor
+     */
+    public double getZoom() {
+        return zoom;
+    }
+}
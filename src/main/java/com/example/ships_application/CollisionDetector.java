@@ -0,0 +1,457 @@
+package com.example.ships_application;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Class to find the ships of the model whose outlines overlap. The detector subscribes to the model and keeps the
+ * contacts up to date as ships are added, removed, moved and rotated, instead of checking every pair of ships. Ships
+ * are bucketed into a uniform grid by their bounding boxes (broadphase), and only ships sharing a cell whose
+ * bounding boxes overlap have their outlines tested against each other (narrowphase). Every change of contacts is
+ * published to the subscribers of the detector with the ships that started or stopped touching another ship.
+ */
+public class CollisionDetector implements ShipModelSubscriber {
+    /**
+     * Class to represent a ship known to the detector, the range of cells it is registered in and the ships it
+     * touches.
+     */
+    static class Body {
+        final Ship ship;
+        int minCol, minRow, maxCol, maxRow;
+        final ArrayList<Body> contacts;
+        // stamps of the last query that found the body, and of the last update that tested it
+        int stamp, tested;
+
+        Body(Ship ship) {
+            this.ship = ship;
+            contacts = new ArrayList<>(2);
+        }
+    }
+
+    /*
+        Instance variables to store the model, whether contacts are kept up to date, the grid and the body of every
+        ship, and the number of touching pairs.
+     */
+    ShipModel model;
+    boolean enabled;
+    GridCells<Body> cells;
+    IdentityHashMap<Ship, Body> bodies;
+    int contactCount;
+    int queryStamp, updateStamp;
+    ArrayList<ShipModelSubscriber> subscribers;
+    // ships whose contacts changed in the current update, published at its end
+    ArrayList<Groupable> changed;
+    // buffers the outlines of the two ships of a narrowphase test are written into
+    double[] xsA, ysA, xsB, ysB;
+
+    /**
+     * Constructor for this class. The detector starts disabled.
+     *
+     * @param model : model to detect overlapping ships of
+     */
+    public CollisionDetector(ShipModel model) {
+        this.model = model;
+        cells = new GridCells<>(SpatialGrid.DEFAULT_CELL_SIZE);
+        bodies = new IdentityHashMap<>();
+        subscribers = new ArrayList<>();
+        changed = new ArrayList<>();
+        xsA = new double[0];
+        ysA = new double[0];
+        xsB = new double[0];
+        ysB = new double[0];
+    }
+
+    /**
+     * Method to add a subscriber to be notified of changed contacts.
+     *
+     * @param aSub : new subscriber
+     */
+    public void addSubscriber(ShipModelSubscriber aSub) {
+        subscribers.add(aSub);
+    }
+
+    /**
+     * Method to check if contacts are kept up to date.
+     *
+     * @return : true if enabled else false
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Method to turn detection on or off. Turning it on finds every contact in the model, turning it off forgets
+     * them, and either way subscribers are told everything changed.
+     *
+     * @param enabled : true to keep contacts up to date
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) return;
+        this.enabled = enabled;
+        rebuild();
+        subscribers.forEach(ShipModelSubscriber::modelChanged);
+    }
+
+    /**
+     * Method to check if a ship, or any ship of a group, touches another ship.
+     *
+     * @param item : ship/group to check
+     * @return : true if it overlaps another ship else false
+     */
+    public boolean isColliding(Groupable item) {
+        if (!item.hasChildren()) {
+            Body body = bodies.get((Ship) item);
+            return body != null && !body.contacts.isEmpty();
+        }
+        for (Groupable child : item.getChildren()) {
+            if (isColliding(child)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Method to get the ships a ship touches.
+     *
+     * @param ship : ship to check
+     * @return : new list of the ships overlapping it
+     */
+    public ArrayList<Ship> getContacts(Ship ship) {
+        ArrayList<Ship> contacts = new ArrayList<>();
+        Body body = bodies.get(ship);
+        if (body != null) body.contacts.forEach(other -> contacts.add(other.ship));
+        return contacts;
+    }
+
+    /**
+     * Method to get every pair of touching ships.
+     *
+     * @return : new list of pairs, each as an array of two ships
+     */
+    public ArrayList<Ship[]> getContactPairs() {
+        ArrayList<Ship[]> pairs = new ArrayList<>(contactCount);
+        int stamp = ++queryStamp;
+        for (Body body : bodies.values()) {
+            body.stamp = stamp;
+            for (Body other : body.contacts) {
+                // each pair is in the contacts of both ships, keep it from the first one visited
+                if (other.stamp != stamp) pairs.add(new Ship[]{body.ship, other.ship});
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Method to get the number of touching pairs of ships.
+     *
+     * @return : number of contacts
+     */
+    public int contactCount() {
+        return contactCount;
+    }
+
+    /**
+     * Method runs when the model has a change without details. Every contact is found again.
+     */
+    @Override
+    public void modelChanged() {
+        if (!enabled) return;
+        rebuild();
+        subscribers.forEach(ShipModelSubscriber::modelChanged);
+    }
+
+    /**
+     * Method runs when the model has a change. Only the ships that were added, removed or moved are checked again.
+     *
+     * @param event : change that happened
+     */
+    @Override
+    public void modelChanged(ShipModelEvent event) {
+        if (!enabled) return;
+        ArrayList<Ship> ships = new ArrayList<>();
+        switch (event.getType()) {
+            case SHIPS_ADDED -> {
+                event.getAffected().forEach(item -> collectShips(item, ships));
+                for (Ship ship : ships) {
+                    Body body = new Body(ship);
+                    bodies.put(ship, body);
+                    register(body);
+                }
+                test(ships);
+            }
+            case SHIPS_REMOVED -> {
+                event.getAffected().forEach(item -> collectShips(item, ships));
+                for (Ship ship : ships) {
+                    Body body = bodies.remove(ship);
+                    if (body == null) continue;
+                    unregister(body);
+                    separate(body);
+                }
+            }
+            case SHIPS_MOVED, SHIPS_REPOSITIONED, SHIPS_ROTATED -> {
+                event.getAffected().forEach(item -> collectShips(item, ships));
+                // all moved ships let go of their contacts first, so that a pair of moved ships is only
+                // tested once and not dropped again by the second of them
+                for (Ship ship : ships) {
+                    Body body = bodies.get(ship);
+                    if (body == null) continue;
+                    update(body);
+                    separate(body);
+                }
+                test(ships);
+            }
+            default -> {
+                return;
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Helper method to forget every body and, if enabled, add every ship of the model again and find all contacts.
+     */
+    private void rebuild() {
+        cells.clear();
+        bodies.clear();
+        contactCount = 0;
+        if (!enabled) return;
+        ArrayList<Ship> ships = new ArrayList<>();
+        model.getShips().forEach(item -> collectShips(item, ships));
+        for (Ship ship : ships) {
+            Body body = new Body(ship);
+            bodies.put(ship, body);
+            register(body);
+        }
+        test(ships);
+        changed.clear();
+    }
+
+    /**
+     * Helper method to test ships against the ships sharing a cell with them, and add the pairs that overlap as
+     * contacts. Pairs of two tested ships are only tested once.
+     *
+     * @param ships : ships to test, already registered in the grid
+     */
+    private void test(ArrayList<Ship> ships) {
+        int update = ++updateStamp;
+        for (Ship ship : ships) {
+            Body body = bodies.get(ship);
+            if (body == null) continue;
+            body.tested = update;
+            int stamp = ++queryStamp;
+            for (int c = body.minCol; c <= body.maxCol; c++) {
+                for (int r = body.minRow; r <= body.maxRow; r++) {
+                    ArrayList<Body> cell = cells.get(c, r);
+                    if (cell == null) continue;
+                    for (Body other : cell) {
+                        if (other == body || other.stamp == stamp || other.tested == update) continue;
+                        other.stamp = stamp;
+                        if (overlap(ship, other.ship)) touch(body, other);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to record a new contact between two bodies.
+     *
+     * @param a : first body
+     * @param b : second body
+     */
+    private void touch(Body a, Body b) {
+        a.contacts.add(b);
+        b.contacts.add(a);
+        contactCount++;
+        changed.add(a.ship);
+        changed.add(b.ship);
+    }
+
+    /**
+     * Helper method to drop every contact of a body.
+     *
+     * @param body : body that no longer touches anything
+     */
+    private void separate(Body body) {
+        if (body.contacts.isEmpty()) return;
+        for (Body other : body.contacts) {
+            other.contacts.remove(body);
+            changed.add(other.ship);
+        }
+        contactCount -= body.contacts.size();
+        body.contacts.clear();
+        changed.add(body.ship);
+    }
+
+    /**
+     * Helper method to tell the subscribers which ships started or stopped touching, if any did.
+     */
+    private void publish() {
+        if (changed.isEmpty()) return;
+        ShipModelEvent event = ShipModelEvent.contactsChanged(changed);
+        changed = new ArrayList<>();
+        subscribers.forEach(sub -> sub.modelChanged(event));
+    }
+
+    /**
+     * Helper method to check if the outlines of two ships overlap. The bounding boxes are compared first, then every
+     * edge of one outline against every edge of the other, and last whether one outline lies inside the other.
+     *
+     * @param a : first ship
+     * @param b : second ship
+     * @return : true if the ships overlap else false
+     */
+    private boolean overlap(Ship a, Ship b) {
+        if (a.getRight() < b.getLeft() || b.getRight() < a.getLeft()
+                || a.getBottom() < b.getTop() || b.getBottom() < a.getTop()) {
+            return false;
+        }
+        int n = a.displayLength(), m = b.displayLength();
+        if (xsA.length < n) {
+            xsA = new double[n];
+            ysA = new double[n];
+        }
+        if (xsB.length < m) {
+            xsB = new double[m];
+            ysB = new double[m];
+        }
+        a.writeDisplayCoordinates(xsA, ysA);
+        b.writeDisplayCoordinates(xsB, ysB);
+        for (int i = 0, pi = n - 1; i < n; pi = i++) {
+            for (int j = 0, pj = m - 1; j < m; pj = j++) {
+                if (segmentsIntersect(xsA[pi], ysA[pi], xsA[i], ysA[i], xsB[pj], ysB[pj], xsB[j], ysB[j])) return true;
+            }
+        }
+        // no edges cross, so either one outline is inside the other or they are apart
+        return inside(xsA[0], ysA[0], xsB, ysB, m) || inside(xsB[0], ysB[0], xsA, ysA, n);
+    }
+
+    /**
+     * Helper method to check if two segments intersect or touch.
+     *
+     * @param x1 : x coordinate of the start of the first segment
+     * @param y1 : y coordinate of the start of the first segment
+     * @param x2 : x coordinate of the end of the first segment
+     * @param y2 : y coordinate of the end of the first segment
+     * @param x3 : x coordinate of the start of the second segment
+     * @param y3 : y coordinate of the start of the second segment
+     * @param x4 : x coordinate of the end of the second segment
+     * @param y4 : y coordinate of the end of the second segment
+     * @return : true if the segments share a point else false
+     */
+    static boolean segmentsIntersect(double x1, double y1, double x2, double y2,
+                                     double x3, double y3, double x4, double y4) {
+        double d1 = cross(x3, y3, x4, y4, x1, y1), d2 = cross(x3, y3, x4, y4, x2, y2);
+        double d3 = cross(x1, y1, x2, y2, x3, y3), d4 = cross(x1, y1, x2, y2, x4, y4);
+        if ((d1 > 0 && d2 < 0 || d1 < 0 && d2 > 0) && (d3 > 0 && d4 < 0 || d3 < 0 && d4 > 0)) return true;
+        // an end point lies on the other segment
+        return d1 == 0 && onSegment(x3, y3, x4, y4, x1, y1) || d2 == 0 && onSegment(x3, y3, x4, y4, x2, y2)
+                || d3 == 0 && onSegment(x1, y1, x2, y2, x3, y3) || d4 == 0 && onSegment(x1, y1, x2, y2, x4, y4);
+    }
+
+    /**
+     * Helper method to get on which side of a line a point is.
+     *
+     * @param ax : x coordinate of the start of the line
+     * @param ay : y coordinate of the start of the line
+     * @param bx : x coordinate of the end of the line
+     * @param by : y coordinate of the end of the line
+     * @param px : x coordinate of the point
+     * @param py : y coordinate of the point
+     * @return : positive on one side, negative on the other and 0 on the line
+     */
+    private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    /**
+     * Helper method to check if a point on the line through a segment lies within the segment.
+     *
+     * @param ax : x coordinate of the start of the segment
+     * @param ay : y coordinate of the start of the segment
+     * @param bx : x coordinate of the end of the segment
+     * @param by : y coordinate of the end of the segment
+     * @param px : x coordinate of the point
+     * @param py : y coordinate of the point
+     * @return : true if the point is within the segment else false
+     */
+    private static boolean onSegment(double ax, double ay, double bx, double by, double px, double py) {
+        return Math.min(ax, bx) <= px && px <= Math.max(ax, bx) && Math.min(ay, by) <= py && py <= Math.max(ay, by);
+    }
+
+    /**
+     * Helper method to check if a point is inside a polygon, by counting the edges a ray from the point crosses.
+     *
+     * @param x  : x coordinate of the point
+     * @param y  : y coordinate of the point
+     * @param xs : x coordinates of the polygon
+     * @param ys : y coordinates of the polygon
+     * @param n  : number of points of the polygon
+     * @return : true if the point is inside else false
+     */
+    private static boolean inside(double x, double y, double[] xs, double[] ys, int n) {
+        boolean in = false;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if ((ys[i] > y) != (ys[j] > y) && x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i]) in = !in;
+        }
+        return in;
+    }
+
+    /**
+     * Helper method to collect the ships of a ship/group.
+     *
+     * @param item  : ship/group to collect
+     * @param ships : list to add the ships to
+     */
+    private static void collectShips(Groupable item, List<Ship> ships) {
+        if (!item.hasChildren()) {
+            ships.add((Ship) item);
+        } else {
+            item.getChildren().forEach(child -> collectShips(child, ships));
+        }
+    }
+
+    /**
+     * Helper method to refresh the cells of a body after its ship has moved.
+     *
+     * @param body : body to refresh
+     */
+    private void update(Body body) {
+        Ship ship = body.ship;
+        if (body.minCol == cells.col(ship.getLeft()) && body.maxCol == cells.col(ship.getRight())
+                && body.minRow == cells.row(ship.getTop()) && body.maxRow == cells.row(ship.getBottom())) {
+            return;
+        }
+        unregister(body);
+        register(body);
+    }
+
+    /**
+     * Helper method to add a body to every cell covered by its ship's bounding box.
+     *
+     * @param body : body to register
+     */
+    private void register(Body body) {
+        Ship ship = body.ship;
+        body.minCol = cells.col(ship.getLeft());
+        body.maxCol = cells.col(ship.getRight());
+        body.minRow = cells.row(ship.getTop());
+        body.maxRow = cells.row(ship.getBottom());
+        for (int c = body.minCol; c <= body.maxCol; c++) {
+            for (int r = body.minRow; r <= body.maxRow; r++) {
+                cells.add(c, r, body);
+            }
+        }
+    }
+
+    /**
+     * Helper method to remove a body from every cell it was registered in.
+     *
+     * @param body : body to unregister
+     */
+    private void unregister(Body body) {
+        for (int c = body.minCol; c <= body.maxCol; c++) {
+            for (int r = body.minRow; r <= body.maxRow; r++) cells.remove(c, r, body);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.ships_application;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Class to let a fleet of ships/groups sail on their own. Every item of the fleet is an agent with a position, a
+ * heading and a speed that steers towards the waypoints of a route in turn. A worker thread advances the agents in
+ * fixed time steps, in parallel partitions for large fleets, and publishes the positions as frames through a lock-free
+ * triple buffer. Once per pulse the FX thread takes the newest frame, if there is one, and moves the fleet in the model
+ * to it with a single reposition, so the model and its subscribers see one change per frame no matter how many ticks
+ * were simulated.
+ */
+public class FleetSimulation implements ShipModelSubscriber {
+    // default number of simulation steps per second
+    public static final double DEFAULT_TICK_RATE = 1000;
+
+    /*
+        Agents: range of speeds in world units per second, how fast they turn in radians per second, how close to a
+        waypoint counts as reaching it, and how far outside the fleet the default route goes.
+     */
+    static final double MIN_SPEED = 40;
+    static final double MAX_SPEED = 120;
+    static final double TURN_RATE = 2;
+    static final double ARRIVAL_DISTANCE = 20;
+    static final double ROUTE_MARGIN = 300;
+    // most steps simulated at once before the worker gives up catching up and lets the simulation run slower
+    static final int MAX_CATCH_UP_TICKS = 100;
+
+    /**
+     * Class to represent the positions of all agents after a tick. The worker only writes to its back frame and the
+     * FX thread only reads its front frame, the third frame is exchanged between them.
+     */
+    static class Frame {
+        final double[] xs, ys;
+        // true while the frame holds positions the FX thread has not taken yet
+        boolean fresh;
+
+        Frame(int agents) {
+            xs = new double[agents];
+            ys = new double[agents];
+        }
+    }
+
+    /*
+        Instance variables used on the FX thread: the model, the simulated ships/groups, the positions they have in
+        the model, buffers for the distances of a reposition, the timer committing frames, and the route set for the
+        next fleet, or null to sail around it.
+     */
+    final ShipModel model;
+    ArrayList<Groupable> fleet;
+    double[] committedXs, committedYs;
+    double[] dXs, dYs;
+    AnimationTimer committer;
+    Frame front;
+    double[] plannedXs, plannedYs;
+    // false once ships were added to the model, until the fleet has been checked to still be top-level
+    boolean fleetChecked;
+
+    /*
+        Instance variables used by the worker: the state of every agent, the route, and the frame being written.
+     */
+    double[] xs, ys, headings, speeds;
+    int[] targets;
+    double[] routeXs, routeYs;
+    Frame back;
+
+    /*
+        Instance variables shared between the threads: the frame being exchanged, the worker, whether it should keep
+        running, its settings, and how many steps it has simulated.
+     */
+    final AtomicReference<Frame> exchange;
+    Thread worker;
+    volatile boolean running;
+    volatile double tickRate;
+    volatile long ticks;
+    int parallelThreshold;
+    long seed;
+
+    /**
+     * Constructor for this class.
+     *
+     * @param model : model the fleet is moved in
+     */
+    public FleetSimulation(ShipModel model) {
+        this.model = model;
+        exchange = new AtomicReference<>();
+        tickRate = DEFAULT_TICK_RATE;
+        parallelThreshold = ShipModel.DEFAULT_PARALLEL_THRESHOLD;
+        seed = 1;
+    }
+
+    /**
+     * Method to set how many steps are simulated per second. Takes effect right away.
+     *
+     * @param tickRate : steps per second
+     */
+    public void setTickRate(double tickRate) {
+        this.tickRate = tickRate;
+    }
+
+    /**
+     * Method to set how many agents a fleet needs before every step is simulated in parallel partitions.
+     *
+     * @param parallelThreshold : number of agents
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Method to set the route the next fleet sails. Agents start at different waypoints and visit them in turn.
+     *
+     * @param xs : x coordinates of the waypoints
+     * @param ys : y coordinates of the waypoints, in the same order
+     */
+    public void setRoute(double[] xs, double[] ys) {
+        plannedXs = xs.clone();
+        plannedYs = ys.clone();
+    }
+
+    /**
+     * Method to check if a fleet is being simulated.
+     *
+     * @return : true if running else false
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method to get how many steps have been simulated for the current or last fleet.
+     *
+     * @return : number of steps
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Method to start simulating a fleet. Frames are committed to the model on every pulse until stopped.
+     *
+     * @param items : ships/groups of the model to simulate
+     */
+    public void start(ArrayList<Groupable> items) {
+        begin(items);
+        if (committer == null) {
+            committer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    commit();
+                }
+            };
+        }
+        committer.start();
+    }
+
+    /**
+     * Method to stop the simulation. The newest frame is committed, so the fleet stays where it was last simulated.
+     */
+    public void stop() {
+        if (!running) return;
+        halt();
+        commit();
+    }
+
+    /**
+     * Method to move the fleet in the model to the newest frame, if the worker has published one since the last
+     * commit. Runs on every pulse while the simulation is running.
+     *
+     * @return : true if the fleet was moved else false
+     */
+    public boolean commit() {
+        Frame newest = exchange.get();
+        if (newest == null || !newest.fresh) return false;
+        if (!fleetChecked) {
+            // an undo or load may have put other ships in place of the fleet, or the fleet into groups
+            for (Groupable item : fleet) {
+                if (!model.isTopLevel(item)) {
+                    halt();
+                    return false;
+                }
+            }
+            fleetChecked = true;
+        }
+        front.fresh = false;
+        front = exchange.getAndSet(front);
+        for (int i = 0; i < dXs.length; i++) {
+            dXs[i] = front.xs[i] - committedXs[i];
+            dYs[i] = front.ys[i] - committedYs[i];
+        }
+        System.arraycopy(front.xs, 0, committedXs, 0, committedXs.length);
+        System.arraycopy(front.ys, 0, committedYs, 0, committedYs.length);
+        model.reposition(fleet, dXs, dYs);
+        return true;
+    }
+
+    /**
+     * Method runs when the model has a change without details. The fleet may no longer be in the model, so the
+     * simulation is stopped without committing.
+     */
+    @Override
+    public void modelChanged() {
+        halt();
+    }
+
+    /**
+     * Method runs when the model has a change. Removing or regrouping ships may take ships of the fleet out of the
+     * model, so the simulation is stopped without committing. Adding ships makes the next commit check that the fleet
+     * is still top-level first.
+     *
+     * @param event : change that happened
+     */
+    @Override
+    public void modelChanged(ShipModelEvent event) {
+        switch (event.getType()) {
+            case SHIPS_REMOVED, GROUP_CREATED, GROUP_DISSOLVED -> halt();
+            case SHIPS_ADDED -> fleetChecked = false;
+            default -> {
+                // moves of fleet ships are kept, the next frame moves them on from where they were put
+            }
+        }
+    }
+
+    /**
+     * Helper method to set up the agents and buffers for a fleet and start the worker.
+     *
+     * @param items : ships/groups of the model to simulate
+     */
+    void begin(ArrayList<Groupable> items) {
+        halt();
+        fleet = new ArrayList<>(items);
+        fleetChecked = true;
+        int n = fleet.size();
+        xs = new double[n];
+        ys = new double[n];
+        headings = new double[n];
+        speeds = new double[n];
+        targets = new int[n];
+        double left = Double.MAX_VALUE, top = Double.MAX_VALUE, right = -Double.MAX_VALUE, bottom = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            Groupable item = fleet.get(i);
+            xs[i] = (item.getLeft() + item.getRight()) / 2;
+            ys[i] = (item.getTop() + item.getBottom()) / 2;
+            left = Math.min(left, item.getLeft());
+            top = Math.min(top, item.getTop());
+            right = Math.max(right, item.getRight());
+            bottom = Math.max(bottom, item.getBottom());
+        }
+        if (plannedXs != null) {
+            routeXs = plannedXs;
+            routeYs = plannedYs;
+        } else {
+            // no route was set, sail around the fleet
+            double x1 = left - ROUTE_MARGIN, y1 = top - ROUTE_MARGIN;
+            double x2 = right + ROUTE_MARGIN, y2 = bottom + ROUTE_MARGIN;
+            routeXs = new double[]{x1, x2, x2, x1};
+            routeYs = new double[]{y1, y1, y2, y2};
+        }
+        Random random = new Random(seed++);
+        for (int i = 0; i < n; i++) {
+            headings[i] = random.nextDouble() * 2 * Math.PI;
+            speeds[i] = MIN_SPEED + random.nextDouble() * (MAX_SPEED - MIN_SPEED);
+            targets[i] = i % routeXs.length;
+        }
+        committedXs = xs.clone();
+        committedYs = ys.clone();
+        dXs = new double[n];
+        dYs = new double[n];
+        front = new Frame(n);
+        back = new Frame(n);
+        exchange.set(new Frame(n));
+        ticks = 0;
+        running = true;
+        worker = new Thread(this::run, "fleet-simulation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Helper method to stop the worker and the timer and wait for the worker to finish.
+     */
+    private void halt() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (committer != null) committer.stop();
+    }
+
+    /**
+     * Helper method run by the worker thread. Steps are simulated at a fixed rate against the clock, and after each
+     * round of steps the positions are published as a frame. Between rounds the worker sleeps until the next step is
+     * due, so it leaves the CPU to the FX thread. Stopping is checked after every step, so halting a large fleet only
+     * waits for the step being simulated.
+     */
+    private void run() {
+        long start = System.nanoTime();
+        long simulated = 0;
+        while (running) {
+            double rate = tickRate;
+            long stepNanos = (long) (1e9 / rate);
+            double dt = 1 / rate;
+            long due = (System.nanoTime() - start - simulated) / stepNanos;
+            if (due > MAX_CATCH_UP_TICKS) {
+                // steps take longer than they simulate, drop the time that cannot be caught up
+                simulated += (due - MAX_CATCH_UP_TICKS) * stepNanos;
+                due = MAX_CATCH_UP_TICKS;
+            }
+            long done = 0;
+            while (done < due && running) {
+                step(dt);
+                done++;
+            }
+            simulated += done * stepNanos;
+            if (done > 0) {
+                ticks += done;
+                publish();
+            }
+            LockSupport.parkNanos(stepNanos - (System.nanoTime() - start - simulated));
+        }
+    }
+
+    /**
+     * Helper method to advance every agent by one step, in parallel partitions for a large fleet.
+     *
+     * @param dt : length of the step in seconds
+     */
+    private void step(double dt) {
+        int n = xs.length;
+        if (n <= parallelThreshold) {
+            step(0, n, dt);
+            return;
+        }
+        int partitions = Runtime.getRuntime().availableProcessors() * 4;
+        IntStream.range(0, partitions).parallel()
+                .forEach(p -> step((int) ((long) n * p / partitions), (int) ((long) n * (p + 1) / partitions), dt));
+    }
+
+    /**
+     * Helper method to advance a range of agents by one step. Each agent turns towards its waypoint, no faster than
+     * the turn rate, and sails on along its heading. Reaching the waypoint makes the next one the target.
+     *
+     * @param from : first agent of the range
+     * @param to   : end of the range, exclusive
+     * @param dt   : length of the step in seconds
+     */
+    private void step(int from, int to, double dt) {
+        double maxTurn = TURN_RATE * dt;
+        for (int i = from; i < to; i++) {
+            double toX = routeXs[targets[i]] - xs[i], toY = routeYs[targets[i]] - ys[i];
+            if (toX * toX + toY * toY < ARRIVAL_DISTANCE * ARRIVAL_DISTANCE) {
+                targets[i] = (targets[i] + 1) % routeXs.length;
+            }
+            // turn the shorter way round, by at most the turn rate
+            double turn = Math.atan2(toY, toX) - headings[i];
+            turn = Math.IEEEremainder(turn, 2 * Math.PI);
+            headings[i] += Math.max(-maxTurn, Math.min(maxTurn, turn));
+            xs[i] += Math.cos(headings[i]) * speeds[i] * dt;
+            ys[i] += Math.sin(headings[i]) * speeds[i] * dt;
+        }
+    }
+
+    /**
+     * Helper method to copy the positions into the back frame and exchange it for the frame in the middle, which the
+     * FX thread has either taken already or not needed.
+     */
+    private void publish() {
+        System.arraycopy(xs, 0, back.xs, 0, xs.length);
+        System.arraycopy(ys, 0, back.ys, 0, ys.length);
+        back.fresh = true;
+        back = exchange.getAndSet(back);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.ships_application;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event recorded for every frame drawn by the view. The duration of the event is the time spent drawing.
+ */
+@Name("com.example.ships_application.Frame")
+@Label("Frame")
+@Category({"Ship Application", "Rendering"})
+@Description("A frame drawn by ShipView")
+public class FrameEvent extends Event {
+    @Label("Ships Drawn")
+    int shipsDrawn;
+
+    @Label("Selection Size")
+    int selectionSize;
+
+    @Label("Notifications")
+    @Description("Model and iModel notifications since the last input")
+    int notifications;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the FX thread since the previous frame")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,194 @@
+package com.example.ships_application;
+
+import java.util.ArrayList;
+
+/**
+ * Class to store the items of a uniform grid by cell, shared by the spatial index and the collision detector. The
+ * column and row of a cell are packed into a long key, and the cells are kept in an open-addressing table on that key
+ * so that looking one up neither boxes the key nor follows a chain. Only cells holding items are stored.
+ *
+ * @param <T> : type of the items
+ */
+class GridCells<T> {
+    // smallest number of slots of the table, a power of two
+    static final int MIN_CAPACITY = 16;
+
+    /*
+        Instance variables to store the size of a cell, the key and items of every slot of the table, where a slot
+        without items is free, and the number of cells stored.
+     */
+    final double cellSize;
+    long[] keys;
+    ArrayList<T>[] lists;
+    int size;
+
+    /**
+     * Constructor for this class. Creates an empty grid.
+     *
+     * @param cellSize : width and height of a single cell
+     */
+    GridCells(double cellSize) {
+        this.cellSize = cellSize;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Method to get the column of the cell containing an x coordinate.
+     *
+     * @param x : x coordinate
+     * @return : column of the cell
+     */
+    int col(double x) {
+        return (int) Math.floor(x / cellSize);
+    }
+
+    /**
+     * Method to get the row of the cell containing a y coordinate.
+     *
+     * @param y : y coordinate
+     * @return : row of the cell
+     */
+    int row(double y) {
+        return (int) Math.floor(y / cellSize);
+    }
+
+    /**
+     * Method to get the items of a cell.
+     *
+     * @param col : column of the cell
+     * @param row : row of the cell
+     * @return : items of the cell, or null if it has none
+     */
+    ArrayList<T> get(int col, int row) {
+        long key = key(col, row);
+        int mask = keys.length - 1;
+        for (int i = slot(key); lists[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) return lists[i];
+        }
+        return null;
+    }
+
+    /**
+     * Method to add an item to a cell.
+     *
+     * @param col  : column of the cell
+     * @param row  : row of the cell
+     * @param item : item to add
+     */
+    void add(int col, int row, T item) {
+        long key = key(col, row);
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (lists[i] != null) {
+            if (keys[i] == key) {
+                lists[i].add(item);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        lists[i] = new ArrayList<>();
+        lists[i].add(item);
+        // keep the table at most half full so probes stay short
+        if (++size * 2 > keys.length) rehash(keys.length * 2);
+    }
+
+    /**
+     * Method to remove an item from a cell. A cell left without items is dropped.
+     *
+     * @param col  : column of the cell
+     * @param row  : row of the cell
+     * @param item : item to remove
+     */
+    void remove(int col, int row, T item) {
+        long key = key(col, row);
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (lists[i] != null && keys[i] != key) i = (i + 1) & mask;
+        if (lists[i] == null) return;
+        lists[i].remove(item);
+        if (lists[i].isEmpty()) free(i);
+    }
+
+    /**
+     * Method to drop every cell.
+     */
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Helper method to free a slot. Cells probed past it are moved back into the gap, so that every cell can still be
+     * found from its home slot without marking removed slots.
+     *
+     * @param hole : slot to free
+     */
+    private void free(int hole) {
+        int mask = keys.length - 1;
+        lists[hole] = null;
+        size--;
+        for (int i = (hole + 1) & mask; lists[i] != null; i = (i + 1) & mask) {
+            // a cell may fill the gap only if the gap lies between its home slot and where it is now
+            if (((i - slot(keys[i])) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                lists[hole] = lists[i];
+                lists[i] = null;
+                hole = i;
+            }
+        }
+    }
+
+    /**
+     * Helper method to move every cell into a table of another capacity.
+     *
+     * @param capacity : new number of slots, a power of two
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        ArrayList<T>[] oldLists = lists;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldLists[j] == null) continue;
+            int i = slot(oldKeys[j]);
+            while (lists[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            lists[i] = oldLists[j];
+            size++;
+        }
+    }
+
+    /**
+     * Helper method to start an empty table.
+     *
+     * @param capacity : number of slots, a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        lists = (ArrayList<T>[]) new ArrayList[capacity];
+        size = 0;
+    }
+
+    /**
+     * Helper method to get the slot a key is looked up from first. The key is scrambled, since neighbouring cells
+     * only differ in their low bits.
+     *
+     * @param key : key of a cell
+     * @return : home slot of the key
+     */
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length - 1);
+    }
+
+    /**
+     * Helper method to pack a column and row into a single key.
+     *
+     * @param col : column of the cell
+     * @param row : row of the cell
+     * @return : key of the cell
+     */
+    private static long key(int col, int row) {
+        return ((long) col << 32) | (row & 0xffffffffL);
+    }
+}
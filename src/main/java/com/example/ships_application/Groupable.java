@@ -37,6 +37,15 @@ public interface Groupable {
      */
     void move(double dX, double dY);
 
+    /**
+     * Method to rotate each child of the group or a single ship around a pivot.
+     *
+     * @param dAngle : angle to rotate by, in radians
+     * @param pivotX : x coordinate of the point to rotate around
+     * @param pivotY : y coordinate of the point to rotate around
+     */
+    void rotate(double dAngle, double pivotX, double pivotY);
+
     /**
      * Method to get the left x coordinate of the bounding box.
      *
@@ -76,6 +85,20 @@ public interface Groupable {
      */
     boolean isContained(double x1, double y1, double x2, double y2);
 
+    /**
+     * Method to get the group this ship/group is a child of.
+     *
+     * @return : parent group, or null if it is not part of a group
+     */
+    ShipGroup getParent();
+
+    /**
+     * Method to set the group this ship/group is a child of.
+     *
+     * @param parent : parent group, or null if it is no longer part of a group
+     */
+    void setParent(ShipGroup parent);
+
     /**
      * Method to return a deep copy of the groupable object.
      *
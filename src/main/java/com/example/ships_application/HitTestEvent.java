@@ -0,0 +1,28 @@
+package com.example.ships_application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event recorded for every hit test of the model. The duration of the event is the time spent in detectHit.
+ */
+@Name("com.example.ships_application.HitTest")
+@Label("Hit Test")
+@Category({"Ship Application", "Model"})
+@Description("A ShipModel.detectHit call")
+public class HitTestEvent extends Event {
+    @Label("X")
+    double x;
+
+    @Label("Y")
+    double y;
+
+    @Label("Hit")
+    boolean hit;
+
+    @Label("Ships In Model")
+    int ships;
+}
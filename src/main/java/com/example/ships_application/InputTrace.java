@@ -0,0 +1,325 @@
+package com.example.ships_application;
+
+import javafx.scene.input.KeyCode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Class to represent a sequence of inputs to the controller, either recorded from a live session or generated, so that
+ * it can be replayed without a JavaFX window. Traces are saved as text, one input per line.
+ */
+public class InputTrace {
+    /*
+        Kinds of inputs the controller handles.
+     */
+    public enum Type {
+        PRESS, DRAG, RELEASE, KEY
+    }
+
+    /**
+     * Class to represent a single input.
+     */
+    public static class Step {
+        final Type type;
+        final double x, y;
+        final boolean shiftDown, controlDown, altDown;
+        final KeyCode key;
+
+        Step(Type type, double x, double y, boolean shiftDown, boolean controlDown, KeyCode key) {
+            this(type, x, y, shiftDown, controlDown, false, key);
+        }
+
+        Step(Type type, double x, double y, boolean shiftDown, boolean controlDown, boolean altDown, KeyCode key) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+            this.shiftDown = shiftDown;
+            this.controlDown = controlDown;
+            this.altDown = altDown;
+            this.key = key;
+        }
+
+        /**
+         * Method to get the kind of input.
+         *
+         * @return : kind of input
+         */
+        public Type getType() {
+            return type;
+        }
+    }
+
+    // list of inputs in the order they happen
+    ArrayList<Step> steps;
+
+    /**
+     * Default constructor for this class. Creates an empty trace.
+     */
+    public InputTrace() {
+        steps = new ArrayList<>();
+    }
+
+    /**
+     * Method to append a mouse press.
+     *
+     * @param x           : x coordinate of the mouse
+     * @param y           : y coordinate of the mouse
+     * @param shiftDown   : true if the shift key is held
+     * @param controlDown : true if the control key is held
+     * @return : this trace
+     */
+    public InputTrace press(double x, double y, boolean shiftDown, boolean controlDown) {
+        return press(x, y, shiftDown, controlDown, false);
+    }
+
+    /**
+     * Method to append a mouse press with the alt key held or not.
+     *
+     * @param x           : x coordinate of the mouse
+     * @param y           : y coordinate of the mouse
+     * @param shiftDown   : true if the shift key is held
+     * @param controlDown : true if the control key is held
+     * @param altDown     : true if the alt key is held
+     * @return : this trace
+     */
+    public InputTrace press(double x, double y, boolean shiftDown, boolean controlDown, boolean altDown) {
+        steps.add(new Step(Type.PRESS, x, y, shiftDown, controlDown, altDown, null));
+        return this;
+    }
+
+    /**
+     * Method to append a mouse drag.
+     *
+     * @param x : x coordinate of the mouse
+     * @param y : y coordinate of the mouse
+     * @return : this trace
+     */
+    public InputTrace drag(double x, double y) {
+        steps.add(new Step(Type.DRAG, x, y, false, false, null));
+        return this;
+    }
+
+    /**
+     * Method to append a mouse release.
+     *
+     * @param x : x coordinate of the mouse
+     * @param y : y coordinate of the mouse
+     * @return : this trace
+     */
+    public InputTrace release(double x, double y) {
+        steps.add(new Step(Type.RELEASE, x, y, false, false, null));
+        return this;
+    }
+
+    /**
+     * Method to append a key press.
+     *
+     * @param key         : key that is pressed
+     * @param controlDown : true if the control key is held
+     * @return : this trace
+     */
+    public InputTrace key(KeyCode key, boolean controlDown) {
+        steps.add(new Step(Type.KEY, 0, 0, false, controlDown, key));
+        return this;
+    }
+
+    /**
+     * Method to append a press, drag in several steps and release between two points.
+     *
+     * @param x1          : x coordinate of the press
+     * @param y1          : y coordinate of the press
+     * @param x2          : x coordinate of the release
+     * @param y2          : y coordinate of the release
+     * @param dragSteps   : number of drag events in between
+     * @param controlDown : true if the control key is held on press
+     * @return : this trace
+     */
+    public InputTrace dragBetween(double x1, double y1, double x2, double y2, int dragSteps, boolean controlDown) {
+        press(x1, y1, false, controlDown);
+        for (int i = 1; i <= dragSteps; i++) {
+            drag(x1 + (x2 - x1) * i / dragSteps, y1 + (y2 - y1) * i / dragSteps);
+        }
+        return release(x2, y2);
+    }
+
+    /**
+     * Method to append every input of another trace.
+     *
+     * @param other : trace to append
+     * @return : this trace
+     */
+    public InputTrace then(InputTrace other) {
+        steps.addAll(other.steps);
+        return this;
+    }
+
+    /**
+     * Method to get the inputs of the trace.
+     *
+     * @return : list of inputs
+     */
+    public ArrayList<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Method to get the number of inputs in the trace.
+     *
+     * @return : number of inputs
+     */
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * Method to generate shift-clicks that create ships at random points.
+     *
+     * @param count  : number of ships to create
+     * @param width  : width of the area to create ships in
+     * @param height : height of the area to create ships in
+     * @param seed   : seed of the random points
+     * @return : new trace
+     */
+    public static InputTrace shiftClickCreation(int count, double width, double height, long seed) {
+        Random random = new Random(seed);
+        InputTrace trace = new InputTrace();
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * width, y = random.nextDouble() * height;
+            trace.press(x, y, true, false).release(x, y);
+        }
+        return trace;
+    }
+
+    /**
+     * Method to generate rubber-band selections over large random parts of an area.
+     *
+     * @param count  : number of selections
+     * @param width  : width of the area
+     * @param height : height of the area
+     * @param seed   : seed of the random rectangles
+     * @return : new trace
+     */
+    public static InputTrace rubberBandSelections(int count, double width, double height, long seed) {
+        Random random = new Random(seed);
+        InputTrace trace = new InputTrace();
+        for (int i = 0; i < count; i++) {
+            // start just outside the area so the press always lands on the background
+            double x1 = -1 - random.nextDouble() * 10, y1 = -1 - random.nextDouble() * 10;
+            double x2 = width * (0.5 + random.nextDouble() / 2), y2 = height * (0.5 + random.nextDouble() / 2);
+            trace.dragBetween(x1, y1, x2, y2, 20, false);
+        }
+        return trace;
+    }
+
+    /**
+     * Method to generate repeated grouping and ungrouping of everything in an area.
+     *
+     * @param count  : number of group/ungroup rounds
+     * @param width  : width of the area
+     * @param height : height of the area
+     * @return : new trace
+     */
+    public static InputTrace groupUngroupStorm(int count, double width, double height) {
+        InputTrace trace = new InputTrace();
+        for (int i = 0; i < count; i++) {
+            trace.dragBetween(-1, -1, width + 50, height + 50, 5, false)
+                    .key(KeyCode.G, false)
+                    .key(KeyCode.U, false);
+        }
+        return trace;
+    }
+
+    /**
+     * Method to generate alt-drags that rotate the selection around its centre. Each drag starts on a selected ship
+     * and turns the mouse half way round the centre in small steps, which puts that ship under the next press.
+     *
+     * @param count   : number of rotations
+     * @param centreX : x coordinate of the centre of the selection
+     * @param centreY : y coordinate of the centre of the selection
+     * @param x       : x coordinate of a selected ship to press on
+     * @param y       : y coordinate of a selected ship to press on
+     * @return : new trace
+     */
+    public static InputTrace rotationDrags(int count, double centreX, double centreY, double x, double y) {
+        InputTrace trace = new InputTrace();
+        double radius = Math.hypot(x - centreX, y - centreY), start = Math.atan2(y - centreY, x - centreX);
+        for (int i = 0; i < count; i++) {
+            trace.press(x, y, false, false, true);
+            double angle = start;
+            for (int j = 1; j <= 50; j++) {
+                angle = start + Math.PI * j / 50;
+                trace.drag(centreX + radius * Math.cos(angle), centreY + radius * Math.sin(angle));
+            }
+            trace.release(centreX + radius * Math.cos(angle), centreY + radius * Math.sin(angle));
+            // the ship that was pressed is now on the other side of the centre
+            x = 2 * centreX - x;
+            y = 2 * centreY - y;
+        }
+        return trace;
+    }
+
+    /**
+     * Method to generate copying everything in an area as one group and pasting it repeatedly.
+     *
+     * @param count  : number of pastes
+     * @param width  : width of the area
+     * @param height : height of the area
+     * @return : new trace
+     */
+    public static InputTrace copyPasteStorm(int count, double width, double height) {
+        InputTrace trace = new InputTrace();
+        trace.dragBetween(-1, -1, width + 50, height + 50, 5, false)
+                .key(KeyCode.G, false)
+                .key(KeyCode.C, true);
+        for (int i = 0; i < count; i++) {
+            trace.key(KeyCode.V, true);
+        }
+        return trace;
+    }
+
+    /**
+     * Method to save the trace as text, one input per line.
+     *
+     * @param path : file to write
+     * @throws IOException : if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            for (Step s : steps) {
+                out.write(s.type + " " + s.x + " " + s.y + " " + s.shiftDown + " " + s.controlDown + " "
+                        + (s.key == null ? "-" : s.key.name()) + " " + s.altDown);
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Method to load a trace saved with write.
+     *
+     * @param path : file to read
+     * @return : loaded trace
+     * @throws IOException : if the file cannot be read
+     */
+    public static InputTrace read(Path path) throws IOException {
+        InputTrace trace = new InputTrace();
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] f = line.trim().split("\\s+");
+                trace.steps.add(new Step(Type.valueOf(f[0]), Double.parseDouble(f[1]), Double.parseDouble(f[2]),
+                        Boolean.parseBoolean(f[3]), Boolean.parseBoolean(f[4]),
+                        // traces saved before alt was recorded have no seventh field
+                        f.length > 6 && Boolean.parseBoolean(f[6]),
+                        f[5].equals("-") ? null : KeyCode.valueOf(f[5])));
+            }
+        }
+        return trace;
+    }
+}
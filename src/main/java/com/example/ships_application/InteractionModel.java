@@ -1,27 +1,47 @@
 package com.example.ships_application;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
- * Interaction Model for the MVC Architecture. Handles clipboard interactions and multi-selections.
+ * Interaction Model for the MVC Architecture. Handles clipboard interactions, multi-selections and the camera the
+ * world is viewed through.
  */
 public class InteractionModel {
     /*
         Instance variables to store subscribers, reference to the selected ships, rubber-band rect used for selection
-        and a reference to the clipboard.
+        and a reference to the clipboard. Selected ships are kept in an insertion-ordered set for constant time
+        membership checks, and a list copy of the selection is cached until the selection changes.
      */
     ArrayList<ShipModelSubscriber> subscribers;
-    ArrayList<Groupable> selectedShips;
+    LinkedHashSet<Groupable> selectedShips;
+    ArrayList<Groupable> selectionList;
     RubberBandRectangle rubberBandRectangle;
     ShipClipboard clipboard;
+    // part of the world shown by the view
+    Camera camera;
+    // counts notifications, disabled unless shared with an enabled instance
+    ShipMetrics metrics;
 
     /**
      * Default constructor for this class. Initializes the list of subscribers and selected ships, and initializes clipboard.
      */
     public InteractionModel() {
         subscribers = new ArrayList<>();
-        selectedShips = new ArrayList<>();
+        selectedShips = new LinkedHashSet<>();
         clipboard = new ShipClipboard();
+        camera = new Camera();
+        metrics = new ShipMetrics();
+    }
+
+    /**
+     * Method to set the metrics the iModel reports notifications to.
+     *
+     * @param metrics : shared metrics of the application
+     */
+    public void setMetrics(ShipMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
@@ -30,15 +50,15 @@ public class InteractionModel {
      * @return : the list of current selected ships
      */
     public ArrayList<Groupable> cutToClipboard() {
-        clipboard.add(selectedShips);
-        return selectedShips;
+        clipboard.add(getSelectedShips());
+        return getSelectedShips();
     }
 
     /**
      * Method to copy the current selected ships to the clipboard.
      */
     public void copyToClipboard() {
-        clipboard.add(selectedShips);
+        clipboard.add(getSelectedShips());
     }
 
     /**
@@ -47,8 +67,23 @@ public class InteractionModel {
      * @return : Ships from the clipboard
      */
     public ArrayList<Groupable> pasteFromClipboard() {
-        ArrayList<Groupable> paste = clipboard.get();
-        selectedShips = paste;
+        return pasteFromClipboard(new ShipStore(clipboard.getSnapshot().shipCount()));
+    }
+
+    /**
+     * Method to paste the ships from the clipboard into the given store and set those ships as current selection.
+     * Pasting into the store of the model saves moving the new ships when they are added to it.
+     *
+     * @param store : store to allocate the pasted ships in
+     * @return : Ships from the clipboard
+     */
+    public ArrayList<Groupable> pasteFromClipboard(ShipStore store) {
+        ArrayList<Groupable> paste = clipboard.get(store);
+        ArrayList<Groupable> changed = new ArrayList<>(selectedShips);
+        changed.addAll(paste);
+        selectedShips = new LinkedHashSet<>(paste);
+        selectionList = null;
+        notifySubscribers(ShipModelEvent.selectionChanged(changed));
         return paste;
     }
 
@@ -60,7 +95,7 @@ public class InteractionModel {
      */
     public void createRubberBand(double x, double y) {
         rubberBandRectangle = new RubberBandRectangle(x, y);
-        notifySubscribers();
+        notifySubscribers(ShipModelEvent.rubberBandChanged());
     }
 
     /**
@@ -82,7 +117,7 @@ public class InteractionModel {
      */
     public void resizeRubberBand(double prevX, double prevY, double x, double y) {
         rubberBandRectangle.resize(prevX, prevY, x, y);
-        notifySubscribers();
+        notifySubscribers(ShipModelEvent.rubberBandChanged());
     }
 
     /**
@@ -90,15 +125,49 @@ public class InteractionModel {
      */
     public void clearRubberBand() {
         rubberBandRectangle = null;
-        notifySubscribers();
+        notifySubscribers(ShipModelEvent.rubberBandChanged());
+    }
+
+    /**
+     * Method to get the camera the world is viewed through.
+     *
+     * @return : camera of the view
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Method to move the camera by a distance in the world.
+     *
+     * @param dX : distance to move on x coordinate
+     * @param dY : distance to move on y coordinate
+     */
+    public void pan(double dX, double dY) {
+        camera.pan(dX, dY);
+        notifySubscribers(ShipModelEvent.viewportChanged());
+    }
+
+    /**
+     * Method to zoom the camera in or out around a point on screen.
+     *
+     * @param screenX : x coordinate on screen to zoom around
+     * @param screenY : y coordinate on screen to zoom around
+     * @param factor  : factor to multiply the zoom by, above 1 zooms in
+     */
+    public void zoom(double screenX, double screenY, double factor) {
+        camera.zoomAt(screenX, screenY, factor);
+        notifySubscribers(ShipModelEvent.viewportChanged());
     }
 
     /**
      * Method to clear selection in the iModel.
      */
     public void clearSelection() {
+        ArrayList<Groupable> deselected = new ArrayList<>(selectedShips);
         selectedShips.clear();
-        notifySubscribers();
+        selectionList = null;
+        notifySubscribers(ShipModelEvent.selectionChanged(deselected));
     }
 
     /**
@@ -107,13 +176,24 @@ public class InteractionModel {
      * @param newSelection : ship to be selected
      */
     public void addSelected(Groupable newSelection) {
-        // remove the selected ship if it is already in selection
-        if (selectedShips.contains(newSelection)) {
-            selectedShips.remove(newSelection);
-        } else {
-            selectedShips.add(newSelection);
+        ArrayList<Groupable> changed = new ArrayList<>();
+        changed.add(newSelection);
+        addSelected(changed);
+    }
+
+    /**
+     * Method to toggle the selection of several ships at once. Ships that are already selected are deselected and the
+     * others are selected. Subscribers are notified once.
+     *
+     * @param toggled : ships to be selected or deselected
+     */
+    public void addSelected(List<Groupable> toggled) {
+        for (Groupable s : toggled) {
+            // remove the selected ship if it is already in selection
+            if (!selectedShips.remove(s)) selectedShips.add(s);
         }
-        notifySubscribers();
+        selectionList = null;
+        notifySubscribers(ShipModelEvent.selectionChanged(toggled));
     }
 
     /**
@@ -122,9 +202,12 @@ public class InteractionModel {
      * @param newSelection : the only ship to be selected
      */
     public void newSelection(Groupable newSelection) {
+        ArrayList<Groupable> changed = new ArrayList<>(selectedShips);
+        changed.add(newSelection);
         selectedShips.clear();
         selectedShips.add(newSelection);
-        notifySubscribers();
+        selectionList = null;
+        notifySubscribers(ShipModelEvent.selectionChanged(changed));
     }
 
     /**
@@ -133,18 +216,41 @@ public class InteractionModel {
      * @param newSelection : list of items to be selected
      */
     public void newSelection(ArrayList<Groupable> newSelection) {
-        selectedShips.clear();
-        selectedShips = newSelection;
-        notifySubscribers();
+        ArrayList<Groupable> changed = new ArrayList<>(selectedShips);
+        changed.addAll(newSelection);
+        selectedShips = new LinkedHashSet<>(newSelection);
+        selectionList = null;
+        notifySubscribers(ShipModelEvent.selectionChanged(changed));
     }
 
     /**
-     * Method to get list of selected ships.
+     * Method to get list of selected ships, in the order they were selected. The list is shared until the selection
+     * changes and must not be modified.
      *
      * @return : list of selected ships
      */
     public ArrayList<Groupable> getSelectedShips() {
-        return selectedShips;
+        if (selectionList == null) selectionList = new ArrayList<>(selectedShips);
+        return selectionList;
+    }
+
+    /**
+     * Method to check if a ship/group is selected.
+     *
+     * @param ship : ship/group to check
+     * @return : true if the ship/group is selected else false
+     */
+    public boolean isSelected(Groupable ship) {
+        return selectedShips.contains(ship);
+    }
+
+    /**
+     * Method to get how many ships/groups are selected.
+     *
+     * @return : number of selected ships/groups
+     */
+    public int selectionSize() {
+        return selectedShips.size();
     }
 
     /**
@@ -158,8 +264,11 @@ public class InteractionModel {
 
     /**
      * Method to notify subscribers of a change in iModel.
+     *
+     * @param event : change that happened
      */
-    private void notifySubscribers() {
-        subscribers.forEach(ShipModelSubscriber::modelChanged);
+    private void notifySubscribers(ShipModelEvent event) {
+        metrics.countNotification();
+        subscribers.forEach(sub -> sub.modelChanged(event));
     }
 }
@@ -0,0 +1,154 @@
+package com.example.ships_application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * Class to replay an input trace through the controller without a JavaFX window, timing how long the controller takes
+ * to handle every input. Used to reproduce slow interactions offline. The model, iModel and controller are wired the
+ * same way as in ShipApplication, only without a view.
+ */
+public class InteractionReplay {
+    /*
+        Instance variables to store the MVC components the trace is replayed against.
+     */
+    ShipModel model;
+    InteractionModel iModel;
+    ShipController controller;
+
+    /**
+     * Default constructor for this class. Replays against an empty model.
+     */
+    public InteractionReplay() {
+        this(new ShipModel());
+    }
+
+    /**
+     * Constructor to replay against an existing model.
+     *
+     * @param model : model to replay against
+     */
+    public InteractionReplay(ShipModel model) {
+        this.model = model;
+        iModel = new InteractionModel();
+        controller = new ShipController();
+        controller.setModel(model);
+        controller.setInteractionModel(iModel);
+    }
+
+    /**
+     * Method to get the controller inputs are fed to, e.g. to connect extra subscribers before replaying.
+     *
+     * @return : controller of the replay
+     */
+    public ShipController getController() {
+        return controller;
+    }
+
+    /**
+     * Method to get the model of the replay.
+     *
+     * @return : model of the replay
+     */
+    public ShipModel getModel() {
+        return model;
+    }
+
+    /**
+     * Method to get the iModel of the replay.
+     *
+     * @return : iModel of the replay
+     */
+    public InteractionModel getInteractionModel() {
+        return iModel;
+    }
+
+    /**
+     * Method to feed every input of a trace to the controller and time each one.
+     *
+     * @param trace : inputs to replay
+     * @return : latencies of the inputs, by kind of input
+     */
+    public EnumMap<InputTrace.Type, LatencyReport> replay(InputTrace trace) {
+        EnumMap<InputTrace.Type, long[]> latencies = new EnumMap<>(InputTrace.Type.class);
+        EnumMap<InputTrace.Type, Integer> counts = new EnumMap<>(InputTrace.Type.class);
+        for (InputTrace.Type type : InputTrace.Type.values()) {
+            latencies.put(type, new long[16]);
+            counts.put(type, 0);
+        }
+        for (InputTrace.Step step : trace.getSteps()) {
+            long start = System.nanoTime();
+            switch (step.type) {
+                case PRESS -> controller.handlePressed(step.x, step.y, step.shiftDown, step.controlDown,
+                        step.altDown);
+                case DRAG -> controller.handleDragged(step.x, step.y);
+                case RELEASE -> controller.handleReleased(step.x, step.y);
+                case KEY -> controller.handleKeyPressed(step.key, step.controlDown);
+            }
+            long elapsed = System.nanoTime() - start;
+            long[] values = latencies.get(step.type);
+            int count = counts.get(step.type);
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                latencies.put(step.type, values);
+            }
+            values[count] = elapsed;
+            counts.put(step.type, count + 1);
+        }
+        EnumMap<InputTrace.Type, LatencyReport> reports = new EnumMap<>(InputTrace.Type.class);
+        latencies.forEach((type, values) -> reports.put(type, new LatencyReport(values, counts.get(type))));
+        return reports;
+    }
+
+    /**
+     * Method to replay a trace and print its latency report.
+     *
+     * @param name  : name of the trace to print
+     * @param trace : inputs to replay
+     */
+    public void replayAndPrint(String name, InputTrace trace) {
+        System.out.println(name + " (" + trace.size() + " inputs, " + model.getShips().size() + " items before)");
+        replay(trace).forEach((type, report) -> {
+            if (report.count() > 0) System.out.println("  " + type + ": " + report);
+        });
+    }
+
+    /**
+     * Method to replay traces from the command line. Without arguments, replays the built-in scenarios; with a path,
+     * replays the trace saved in that file against an empty model.
+     *
+     * @param args : optional path of a saved trace and number of ships for the built-in scenarios
+     * @throws IOException : if the trace file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            new InteractionReplay().replayAndPrint(args[0], InputTrace.read(Path.of(args[0])));
+            return;
+        }
+        int ships = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        // area large enough that most shift-clicks land on the background and create a ship
+        double width = Math.sqrt(ships * 60.0 * 60.0), height = width;
+        InteractionReplay replay = new InteractionReplay();
+        replay.replayAndPrint("shift-click creation", InputTrace.shiftClickCreation(ships, width, height, 1));
+        replay.replayAndPrint("rubber-band selections", InputTrace.rubberBandSelections(20, width, height, 2));
+        replay.replayAndPrint("group/ungroup storm", InputTrace.groupUngroupStorm(10, width, height));
+        replay.replayAndPrint("copy/paste of a large group", InputTrace.copyPasteStorm(10, width, height));
+        // rotate everything around the centre of its bounds, pressing on the first ship of the first item
+        replay.iModel.newSelection(new ArrayList<>(replay.model.getShips()));
+        double left = Double.MAX_VALUE, top = Double.MAX_VALUE, right = -Double.MAX_VALUE, bottom = -Double.MAX_VALUE;
+        for (Groupable item : replay.model.getShips()) {
+            left = Math.min(left, item.getLeft());
+            top = Math.min(top, item.getTop());
+            right = Math.max(right, item.getRight());
+            bottom = Math.max(bottom, item.getBottom());
+        }
+        Groupable first = replay.model.getShips().get(0);
+        while (first.hasChildren()) first = first.getChildren().get(0);
+        Ship ship = (Ship) first;
+        replay.replayAndPrint("alt-drag rotation of everything", InputTrace.rotationDrags(5, (left + right) / 2,
+                (top + bottom) / 2, ship.getTranslateX(), ship.getTranslateY()));
+    }
+}
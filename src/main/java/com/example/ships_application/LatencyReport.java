@@ -0,0 +1,76 @@
+package com.example.ships_application;
+
+import java.util.Arrays;
+
+/**
+ * Class to summarise a set of latencies, in nanoseconds, as percentiles.
+ */
+public class LatencyReport {
+    /*
+        Instance variables to store the latencies in ascending order.
+     */
+    final long[] sorted;
+
+    /**
+     * Default constructor for this class.
+     *
+     * @param latencies : latencies in nanoseconds, in any order
+     * @param count     : number of latencies used from the array
+     */
+    public LatencyReport(long[] latencies, int count) {
+        sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+    }
+
+    /**
+     * Method to get how many latencies were recorded.
+     *
+     * @return : number of latencies
+     */
+    public int count() {
+        return sorted.length;
+    }
+
+    /**
+     * Method to get a percentile of the latencies, using the nearest-rank method.
+     *
+     * @param percentile : percentile between 0 and 100
+     * @return : latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+
+    /**
+     * Method to get the largest latency.
+     *
+     * @return : latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long max() {
+        return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+    }
+
+    /**
+     * Method to get the sum of all latencies.
+     *
+     * @return : total time in nanoseconds
+     */
+    public long total() {
+        long total = 0;
+        for (long l : sorted) total += l;
+        return total;
+    }
+
+    /**
+     * Method to describe the report in one line, with latencies in milliseconds.
+     *
+     * @return : description of the report
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.3fms p99=%.3fms max=%.3fms total=%.1fms", count(),
+                percentile(50) / 1e6, percentile(99) / 1e6, max() / 1e6, total() / 1e6);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ships_application;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Class to coalesce repaint requests so that a view is redrawn at most once per JavaFX pulse, no matter how many
+ * changes happened since the last frame. The timer only runs while a repaint is pending.
+ */
+public class RepaintScheduler extends AnimationTimer {
+    /*
+        Instance variables to store what to run on a repaint, whether a repaint is pending and counters of how many
+        redraws were done and how many requests were folded into an already pending redraw.
+     */
+    Runnable repaint;
+    boolean dirty;
+    long redraws, avoidedRedraws;
+
+    /**
+     * Default constructor for this class.
+     *
+     * @param repaint : action that redraws the view
+     */
+    public RepaintScheduler(Runnable repaint) {
+        this.repaint = repaint;
+    }
+
+    /**
+     * Method to mark the view as dirty. The view is redrawn on the next pulse.
+     */
+    public void requestRepaint() {
+        if (dirty) {
+            // a repaint is already pending for this pulse
+            avoidedRedraws++;
+            return;
+        }
+        dirty = true;
+        start();
+    }
+
+    /**
+     * Method that runs on every pulse while a repaint is pending. Redraws the view and stops the timer until the next
+     * request.
+     *
+     * @param now : timestamp of the current frame in nanoseconds
+     */
+    @Override
+    public void handle(long now) {
+        stop();
+        dirty = false;
+        redraws++;
+        repaint.run();
+    }
+
+    /**
+     * Method to get how many redraws were done.
+     *
+     * @return : number of redraws
+     */
+    public long getRedraws() {
+        return redraws;
+    }
+
+    /**
+     * Method to get how many repaint requests did not cause a redraw of their own because one was already pending.
+     *
+     * @return : number of redraws avoided
+     */
+    public long getAvoidedRedraws() {
+        return avoidedRedraws;
+    }
+}
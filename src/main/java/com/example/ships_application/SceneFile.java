@@ -0,0 +1,499 @@
+package com.example.ships_application;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Class to save and load scenes in a compact binary format. A file starts with a header holding the number of
+ * top-level items and ships and the outlines of the shapes, followed by every top-level ship/group from bottom to top
+ * with the trees of groups written in preorder. A ship takes 21 bytes, a rotated ship 29 bytes and a group 5 bytes.
+ * Files are written through a FileChannel and read through memory-mapped windows, and loading hands out the items in
+ * batches so that the first ones can be shown while the rest of the file is still being read.
+ */
+public class SceneFile {
+    /*
+        Constants of the format: magic number ("SHIP"), version and the tags of the records.
+     */
+    static final int MAGIC = 0x53484950;
+    static final int VERSION = 2;
+    static final byte SHIP = 0;
+    static final byte GROUP = 1;
+    static final byte ROTATED_SHIP = 2;
+    // oldest version that can still be read, it has no rotated ships
+    static final int MIN_VERSION = 1;
+    // size of the biggest record, a rotated ship: tag, shape id, coordinates and angle
+    static final int MAX_RECORD_BYTES = 1 + 4 + 8 + 8 + 8;
+    // offset of the item and ship counts in the header
+    static final int COUNTS_OFFSET = 8;
+
+    /*
+        Size of the buffer used to write files and of the windows files are mapped in, and the default number of ships
+        handed out per batch while loading.
+     */
+    static final int WRITE_BUFFER_BYTES = 1 << 20;
+    static final long MAP_WINDOW_BYTES = 64L << 20;
+    public static final int DEFAULT_BATCH_SHIPS = 50000;
+
+    /**
+     * Method to save ships/groups to a file. The file is written next to the target first and then moved over it, so an
+     * existing scene is never left half written.
+     *
+     * @param path  : file to save to
+     * @param items : top-level ships/groups from bottom to top
+     * @throws IOException : if the file cannot be written
+     */
+    public static void save(Path path, List<Groupable> items) throws IOException {
+        FileChannel channel = openTemp(path);
+        try (channel) {
+            write(channel, items);
+            channel.force(false);
+        }
+        moveOver(path);
+    }
+
+    /**
+     * Method to save a clipboard snapshot to a file, the same way as saving ships/groups. The snapshot never changes,
+     * so it can be taken on the FX thread and saved on another thread.
+     *
+     * @param path     : file to save to
+     * @param snapshot : snapshot of top-level ships/groups from bottom to top
+     * @throws IOException : if the file cannot be written
+     */
+    public static void save(Path path, ShipClipboard.Snapshot snapshot) throws IOException {
+        FileChannel channel = openTemp(path);
+        try (channel) {
+            write(channel, snapshot);
+            channel.force(false);
+        }
+        moveOver(path);
+    }
+
+    /**
+     * Helper method to open the file a scene is written to before it is moved over the target.
+     *
+     * @param path : file the scene is saved to
+     * @return : channel of the temporary file
+     * @throws IOException : if the file cannot be opened
+     */
+    private static FileChannel openTemp(Path path) throws IOException {
+        return FileChannel.open(path.resolveSibling(path.getFileName() + ".tmp"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Helper method to move a fully written temporary file over the target.
+     *
+     * @param path : file the scene is saved to
+     * @throws IOException : if the file cannot be moved
+     */
+    private static void moveOver(Path path) throws IOException {
+        Files.move(path.resolveSibling(path.getFileName() + ".tmp"), path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Method to write ships/groups to a channel in the scene format, starting at its current position.
+     *
+     * @param channel : channel to write to
+     * @param items   : top-level ships/groups from bottom to top
+     * @throws IOException : if the channel cannot be written
+     */
+    public static void write(FileChannel channel, List<Groupable> items) throws IOException {
+        long start = channel.position();
+        Writer writer = new Writer(channel);
+        writer.writeHeader();
+        for (Groupable item : items) writer.writeItem(item);
+        writer.flush();
+        // counts are only known once every tree has been walked, patch them into the header
+        writeCounts(channel, start, items.size(), writer.ships);
+    }
+
+    /**
+     * Method to write a clipboard snapshot to a channel in the scene format, starting at its current position. The
+     * snapshot can be taken on one thread and written on another, as it never changes.
+     *
+     * @param channel  : channel to write to
+     * @param snapshot : snapshot of top-level ships/groups from bottom to top
+     * @throws IOException : if the channel cannot be written
+     */
+    public static void write(FileChannel channel, ShipClipboard.Snapshot snapshot) throws IOException {
+        long start = channel.position();
+        Writer writer = new Writer(channel);
+        writer.writeHeader();
+        // cursors into the nodes and into the ship columns of the snapshot
+        int[] cursor = new int[2];
+        for (int i = 0; i < snapshot.roots; i++) writer.writeNode(snapshot, cursor);
+        writer.flush();
+        writeCounts(channel, start, snapshot.roots, writer.ships);
+    }
+
+    /**
+     * Helper method to write the number of top-level items and ships into the header of a scene.
+     *
+     * @param channel : channel the scene was written to
+     * @param start   : position the scene starts at
+     * @param items   : number of top-level items
+     * @param ships   : number of ships
+     * @throws IOException : if the channel cannot be written
+     */
+    private static void writeCounts(FileChannel channel, long start, long items, long ships) throws IOException {
+        ByteBuffer counts = ByteBuffer.allocate(16);
+        counts.putLong(items).putLong(ships).flip();
+        while (counts.hasRemaining()) channel.write(counts, start + COUNTS_OFFSET + counts.position());
+    }
+
+    /**
+     * Method to load every ship/group of a file into a model, on top of what it already holds. The ships are
+     * allocated straight into the store of the model.
+     *
+     * @param path  : file to load
+     * @param model : model to add the ships/groups to
+     * @throws IOException : if the file cannot be read or is not a scene
+     */
+    public static void load(Path path, ShipModel model) throws IOException {
+        try (Reader reader = new Reader(path)) {
+            while (reader.hasNext()) {
+                model.add(reader.next(model.getStore(), DEFAULT_BATCH_SHIPS));
+            }
+        }
+    }
+
+    /**
+     * Method to read a file in batches. Every batch gets a store of its own, so it can be built on another thread
+     * than the one adding it to a model.
+     *
+     * @param path       : file to load
+     * @param batchShips : number of ships after which a batch is handed out
+     * @param consumer   : receives each batch of top-level ships/groups, from bottom to top
+     * @throws IOException : if the file cannot be read or is not a scene
+     */
+    public static void stream(Path path, int batchShips, Consumer<ArrayList<Groupable>> consumer) throws IOException {
+        try (Reader reader = new Reader(path)) {
+            while (reader.hasNext()) {
+                long left = reader.getShipCount() - reader.shipsRead;
+                consumer.accept(reader.next(new ShipStore((int) Math.min(batchShips, left)), batchShips));
+            }
+        }
+    }
+
+    /**
+     * Class to write the records of a scene through a buffer that is flushed to the channel whenever it fills up.
+     */
+    static class Writer {
+        final FileChannel channel;
+        final ByteBuffer buffer;
+        long ships;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        }
+
+        /**
+         * Method to write the header with every registered shape. The counts are written as 0 and patched later.
+         *
+         * @throws IOException : if the channel cannot be written
+         */
+        void writeHeader() throws IOException {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(0).putLong(0);
+            int shapes = ShipShape.count();
+            buffer.putInt(shapes);
+            for (int id = 0; id < shapes; id++) {
+                ShipShape shape = ShipShape.byId(id);
+                byte[] name = shape.name.getBytes(StandardCharsets.UTF_8);
+                ensure(2 + name.length + 4 + shape.xs.length * 16);
+                buffer.putShort((short) name.length).put(name).putInt(shape.xs.length);
+                for (double x : shape.xs) buffer.putDouble(x);
+                for (double y : shape.ys) buffer.putDouble(y);
+            }
+        }
+
+        /**
+         * Method to write a ship/group and, for a group, all of its children.
+         *
+         * @param item : ship/group to write
+         * @throws IOException : if the channel cannot be written
+         */
+        void writeItem(Groupable item) throws IOException {
+            ensure(MAX_RECORD_BYTES);
+            if (!item.hasChildren()) {
+                Ship ship = (Ship) item;
+                writeShip(ship.store.shapeId[ship.slot], ship.store.translateX[ship.slot],
+                        ship.store.translateY[ship.slot], ship.store.angle[ship.slot]);
+            } else {
+                ArrayList<Groupable> children = item.getChildren();
+                buffer.put(GROUP).putInt(children.size());
+                for (Groupable child : children) writeItem(child);
+            }
+        }
+
+        /**
+         * Method to write the node of a snapshot at the cursor and, for a group, all of its children.
+         *
+         * @param snapshot : snapshot to write from
+         * @param cursor   : position in the nodes and in the ship columns, advanced past the node
+         * @throws IOException : if the channel cannot be written
+         */
+        void writeNode(ShipClipboard.Snapshot snapshot, int[] cursor) throws IOException {
+            ensure(MAX_RECORD_BYTES);
+            int children = snapshot.nodes[cursor[0]++];
+            if (children < 0) {
+                int ship = cursor[1]++;
+                writeShip(snapshot.shapeIds[ship], snapshot.xs[ship], snapshot.ys[ship], snapshot.angles[ship]);
+            } else {
+                buffer.put(GROUP).putInt(children);
+                for (int i = 0; i < children; i++) writeNode(snapshot, cursor);
+            }
+        }
+
+        /**
+         * Method to write a ship record. The angle is only written for a rotated ship.
+         *
+         * @param shapeId : id of the shape of the ship
+         * @param x       : x coordinate of the ship
+         * @param y       : y coordinate of the ship
+         * @param angle   : angle of the ship, in radians
+         */
+        void writeShip(int shapeId, double x, double y, double angle) {
+            buffer.put(angle == 0 ? SHIP : ROTATED_SHIP).putInt(shapeId).putDouble(x).putDouble(y);
+            if (angle != 0) buffer.putDouble(angle);
+            ships++;
+        }
+
+        /**
+         * Method to make room for the given number of bytes, flushing the buffer if needed.
+         *
+         * @param bytes : bytes about to be written
+         * @throws IOException : if the channel cannot be written
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+            if (buffer.remaining() < bytes) throw new IOException("Record of " + bytes + " bytes does not fit the buffer");
+        }
+
+        /**
+         * Method to write out everything in the buffer.
+         *
+         * @throws IOException : if the channel cannot be written
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Class to read a scene through memory-mapped windows of the file. Items are read in the order they were saved,
+     * and ships are allocated straight into the store passed to next, so no intermediate objects are built.
+     */
+    public static class Reader implements Closeable {
+        /*
+            Instance variables to store the file, the mapped window and where it starts in the file, the ids the
+            shapes of the file were registered under, and the counts of the file and of what has been read so far.
+         */
+        final FileChannel channel;
+        final long size;
+        MappedByteBuffer buffer;
+        long bufferStart;
+        int[] shapeIds;
+        long itemCount, shipCount;
+        long itemsRead, shipsRead;
+
+        /**
+         * Constructor for this class. Opens the file and reads its header.
+         *
+         * @param path : file to read
+         * @throws IOException : if the file cannot be read or is not a scene
+         */
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                size = channel.size();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(MAP_WINDOW_BYTES, size));
+                readHeader();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Helper method to read the header and register the shapes of the file. Every count and outline is checked
+         * before the first shape is registered, so a corrupt header leaves the registry as it was.
+         *
+         * @throws IOException : if the file is not a scene or its header is corrupt
+         */
+        private void readHeader() throws IOException {
+            ensure(28);
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a scene file");
+            int version = buffer.getInt();
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new IOException("Unsupported scene version " + version);
+            }
+            itemCount = buffer.getLong();
+            shipCount = buffer.getLong();
+            if (itemCount < 0 || shipCount < 0) throw corrupt("counts");
+            int shapes = buffer.getInt();
+            // a shape takes at least the length of its name and its number of points
+            if (shapes < 0 || shapes > bytesLeft() / 6) throw corrupt("number of shapes");
+            String[] names = new String[shapes];
+            double[][] xs = new double[shapes][], ys = new double[shapes][];
+            for (int i = 0; i < shapes; i++) {
+                ensure(2);
+                byte[] name = new byte[buffer.getShort() & 0xffff];
+                ensure(name.length + 4);
+                buffer.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                int n = buffer.getInt();
+                // an outline has to fit in one mapped window
+                if (n < 3 || n > Math.min(bytesLeft(), MAP_WINDOW_BYTES) / 16) throw corrupt("outline of shape " + i);
+                ensure(n * 16);
+                xs[i] = new double[n];
+                ys[i] = new double[n];
+                for (int j = 0; j < n; j++) xs[i][j] = buffer.getDouble();
+                for (int j = 0; j < n; j++) ys[i][j] = buffer.getDouble();
+                for (int j = 0; j < n; j++) {
+                    if (!Double.isFinite(xs[i][j]) || !Double.isFinite(ys[i][j])) {
+                        throw corrupt("outline of shape " + i);
+                    }
+                }
+            }
+            shapeIds = new int[shapes];
+            for (int i = 0; i < shapes; i++) shapeIds[i] = ShipShape.register(names[i], xs[i], ys[i]).id;
+        }
+
+        /**
+         * Method to check if there are top-level items left to read.
+         *
+         * @return : true if there are items left else false
+         */
+        public boolean hasNext() {
+            return itemsRead < itemCount;
+        }
+
+        /**
+         * Method to read the next top-level items until at least the given number of ships has been read or the file
+         * ends. An item is never split, so a batch always holds at least one item.
+         *
+         * @param store    : store to allocate the ships in
+         * @param maxShips : number of ships after which the batch ends
+         * @return : list of top-level ships/groups, from bottom to top
+         * @throws IOException : if the file is truncated or corrupt
+         */
+        public ArrayList<Groupable> next(ShipStore store, int maxShips) throws IOException {
+            ArrayList<Groupable> batch = new ArrayList<>();
+            long limit = shipsRead + maxShips;
+            while (hasNext() && (batch.isEmpty() || shipsRead < limit)) {
+                batch.add(readItem(store));
+                itemsRead++;
+            }
+            return batch;
+        }
+
+        /**
+         * Helper method to read a ship/group and, for a group, all of its children.
+         *
+         * @param store : store to allocate the ships in
+         * @return : new ship/group
+         * @throws IOException : if the file is truncated or corrupt
+         */
+        private Groupable readItem(ShipStore store) throws IOException {
+            ensure(5);
+            byte tag = buffer.get();
+            if (tag == SHIP || tag == ROTATED_SHIP) {
+                ensure(tag == SHIP ? MAX_RECORD_BYTES - 9 : MAX_RECORD_BYTES - 1);
+                int shape = buffer.getInt();
+                if (shape < 0 || shape >= shapeIds.length) throw corrupt("shape of ship");
+                if (shipsRead == shipCount) throw corrupt("ship beyond the count of the header");
+                double x = buffer.getDouble(), y = buffer.getDouble();
+                shipsRead++;
+                return new Ship(store, ShipShape.byId(shapeIds[shape]), x, y, tag == SHIP ? 0 : buffer.getDouble());
+            }
+            if (tag != GROUP) throw corrupt("record");
+            int children = buffer.getInt();
+            // a child takes at least the bytes of an empty group
+            if (children < 0 || children > bytesLeft() / 5) throw corrupt("number of children");
+            ArrayList<Groupable> ships = new ArrayList<>(children);
+            for (int i = 0; i < children; i++) ships.add(readItem(store));
+            ShipGroup group = new ShipGroup();
+            group.setShips(ships);
+            return group;
+        }
+
+        /**
+         * Helper method to make sure the given number of bytes can be read from the mapped window, mapping the next
+         * window of the file if needed.
+         *
+         * @param bytes : bytes about to be read
+         * @throws IOException : if the file ends before that
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            long position = bufferStart + buffer.position();
+            if (position + bytes > size) throw new EOFException("Scene file is truncated");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.max(bytes, Math.min(MAP_WINDOW_BYTES, size - position)));
+            bufferStart = position;
+        }
+
+        /**
+         * Helper method to get the number of bytes of the file after the current position.
+         *
+         * @return : bytes left to read
+         */
+        private long bytesLeft() {
+            return size - bufferStart - buffer.position();
+        }
+
+        /**
+         * Helper method to create the error for a corrupt part of the file, at the current position.
+         *
+         * @param what : part of the file that is corrupt
+         * @return : new exception
+         */
+        private IOException corrupt(String what) {
+            return new IOException("Corrupt scene " + what + " at " + (bufferStart + buffer.position()));
+        }
+
+        /**
+         * Method to get the number of top-level items in the file.
+         *
+         * @return : number of items
+         */
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * Method to get the number of ships in the file, counting the ships inside groups.
+         *
+         * @return : number of ships
+         */
+        public long getShipCount() {
+            return shipCount;
+        }
+
+        /**
+         * Method to close the file.
+         *
+         * @throws IOException : if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -1,14 +1,6 @@
 package com.example.ships_application;
 
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
-
 import java.util.ArrayList;
-import java.util.stream.DoubleStream;
-import java.util.stream.IntStream;
 
 /**
  * Class to represent a Ship. Supports move, rotate and creation of a ship. Also provides a method to check if a point
@@ -16,71 +8,92 @@ import java.util.stream.IntStream;
  */
 public class Ship implements Groupable {
     /*
-        Instance variables to store the relevant information needed to draw a ship.
+        Instance variables to store where the data of the ship lives. The translation, rotation, bounding box and
+        shape id of the ship are kept in a slot of a ShipStore, so a ship object is only a handle to that slot.
      */
-    double translateX, translateY;
-    double[] xs = {0, 20, 0, -20, 0};
-    double[] ys = {24, -20, -12, -20, 24};
-    double shipWidth, shipHeight;
-    double[] displayXs, displayYs;
-    double left, top, right, bottom;
-    WritableImage buffer;
-    PixelReader reader;
-    double clickX, clickY;
+    ShipStore store;
+    int slot;
+    ShipGroup parent;
 
     /**
-     * Default constructor of this class. Creates a ship object with the given coordinates.
+     * Default constructor of this class. Creates a ship object with the default shape at the given coordinates.
      *
      * @param newX : x coordinate
      * @param newY : y coordinate
      */
     public Ship(double newX, double newY) {
-        Canvas shipCanvas;
-        GraphicsContext gc;
+        this(ShipShape.DEFAULT, newX, newY);
+    }
 
-        translateX = newX;
-        translateY = newY;
-        double minVal = DoubleStream.of(xs).min().getAsDouble();
-        double maxVal = DoubleStream.of(xs).max().getAsDouble();
-        shipWidth = maxVal - minVal;
-        minVal = DoubleStream.of(ys).min().getAsDouble();
-        maxVal = DoubleStream.of(ys).max().getAsDouble();
-        shipHeight = maxVal - minVal;
-        displayXs = new double[xs.length];
-        displayYs = new double[ys.length];
-        for (int i = 0; i < displayXs.length; i++) {
-            displayXs[i] = xs[i] + shipWidth / 2;
-            displayYs[i] = ys[i] + shipHeight / 2;
-        }
+    /**
+     * Constructor to create a ship object of the given shape at the given coordinates. Until it is added to a model,
+     * the ship lives in a store shared with other ships created outside of a model.
+     *
+     * @param shape : shape of the ship
+     * @param newX  : x coordinate
+     * @param newY  : y coordinate
+     */
+    public Ship(ShipShape shape, double newX, double newY) {
+        this(ShipStore.detached(), shape, newX, newY);
+    }
 
-        shipCanvas = new Canvas(shipWidth, shipHeight);
-        gc = shipCanvas.getGraphicsContext2D();
-        gc.setFill(Color.BLACK);
-        gc.fillPolygon(displayXs, displayYs, displayXs.length);
-        buffer = shipCanvas.snapshot(null, null);
-        reader = buffer.getPixelReader();
+    /**
+     * Constructor to create a ship object of the given shape at the given coordinates in a slot of the given store.
+     *
+     * @param store : store to keep the data of the ship in
+     * @param shape : shape of the ship
+     * @param newX  : x coordinate
+     * @param newY  : y coordinate
+     */
+    public Ship(ShipStore store, ShipShape shape, double newX, double newY) {
+        this.store = store;
+        slot = store.allocate(shape, newX, newY);
+    }
 
-        for (int i = 0; i < displayXs.length; i++) {
-            displayXs[i] = xs[i] + translateX;
-            displayYs[i] = ys[i] + translateY;
-        }
-        recalculateBounds();
+    /**
+     * Constructor to create a rotated ship object of the given shape at the given coordinates in a slot of the given
+     * store.
+     *
+     * @param store    : store to keep the data of the ship in
+     * @param shape    : shape of the ship
+     * @param newX     : x coordinate
+     * @param newY     : y coordinate
+     * @param rotation : angle the ship is turned by around its coordinates, in radians
+     */
+    public Ship(ShipStore store, ShipShape shape, double newX, double newY, double rotation) {
+        this.store = store;
+        slot = store.allocate(shape, newX, newY, rotation);
     }
 
     /**
-     * Helper method to move the ship to a new point.
+     * Method to move the data of the ship into another store. The slot in the old store is released.
      *
-     * @param dx : Distance to move x coordinate by
-     * @param dy : Distance to move y coordinate by
+     * @param target : store to move the ship to
      */
-    private void moveShip(double dx, double dy) {
-        for (int i = 0; i < displayXs.length; i++) {
-            displayXs[i] += dx;
-            displayYs[i] += dy;
-        }
-        translateX += dx;
-        translateY += dy;
-        recalculateBounds();
+    public void transferTo(ShipStore target) {
+        if (target == store) return;
+        int newSlot = target.copyFrom(store, slot);
+        store.release(slot);
+        store = target;
+        slot = newSlot;
+    }
+
+    /**
+     * Method to get the store the data of the ship is kept in.
+     *
+     * @return : store of the ship
+     */
+    public ShipStore getStore() {
+        return store;
+    }
+
+    /**
+     * Method to get the slot of the ship in its store.
+     *
+     * @return : slot of the ship
+     */
+    public int getSlot() {
+        return slot;
     }
 
     /**
@@ -104,7 +117,8 @@ public class Ship implements Groupable {
     }
 
     /**
-     * Method to check if a point exists within the ship.
+     * Method to check if a point exists within the ship. The point is moved and turned back into the coordinates of
+     * the shape with the inverse of the ship's transform, and tested against its outline.
      *
      * @param x : x coordinate of the point to check
      * @param y : y coordinate of the point to check
@@ -112,14 +126,9 @@ public class Ship implements Groupable {
      */
     @Override
     public boolean contains(double x, double y) {
-        clickX = x - translateX + shipWidth / 2;
-        clickY = y - translateY + shipHeight / 2;
-        // check bounding box first, then bitmap
-        boolean inside = false;
-        if (clickX >= 0 && clickX <= shipWidth && clickY >= 0 && clickY <= shipHeight) {
-            if (reader.getColor((int) clickX, (int) clickY).equals(Color.BLACK)) inside = true;
-        }
-        return inside;
+        double dX = x - store.translateX[slot], dY = y - store.translateY[slot];
+        double c = store.cos[slot], s = store.sin[slot];
+        return getShape().contains(dX * c + dY * s, dY * c - dX * s);
     }
 
     /**
@@ -130,7 +139,29 @@ public class Ship implements Groupable {
      */
     @Override
     public void move(double dX, double dY) {
-        moveShip(dX, dY);
+        // only the translation and the bounding box are shifted, display coordinates are computed when asked for
+        store.move(slot, dX, dY);
+    }
+
+    /**
+     * Method to rotate the ship around a pivot. The bounding box becomes the box around the turned outline.
+     *
+     * @param dAngle : angle to rotate by, in radians
+     * @param pivotX : x coordinate of the point to rotate around
+     * @param pivotY : y coordinate of the point to rotate around
+     */
+    @Override
+    public void rotate(double dAngle, double pivotX, double pivotY) {
+        store.rotate(slot, dAngle, pivotX, pivotY);
+    }
+
+    /**
+     * Method to get the angle the ship is turned by around its translation point.
+     *
+     * @return : angle in radians
+     */
+    public double getAngle() {
+        return store.angle[slot];
     }
 
     /**
@@ -140,7 +171,7 @@ public class Ship implements Groupable {
      */
     @Override
     public double getLeft() {
-        return left;
+        return store.left[slot];
     }
 
     /**
@@ -150,7 +181,7 @@ public class Ship implements Groupable {
      */
     @Override
     public double getTop() {
-        return top;
+        return store.top[slot];
     }
 
     /**
@@ -160,7 +191,7 @@ public class Ship implements Groupable {
      */
     @Override
     public double getRight() {
-        return right;
+        return store.right[slot];
     }
 
     /**
@@ -170,7 +201,7 @@ public class Ship implements Groupable {
      */
     @Override
     public double getBottom() {
-        return bottom;
+        return store.bottom[slot];
     }
 
     /**
@@ -180,47 +211,111 @@ public class Ship implements Groupable {
      * @param y1 : left y coordinate of the rectangle
      * @param x2 : right x coordinate of the rectangle
      * @param y2 : right y coordinate of the rectangle
-     * @return : true if all points of the group are within the rectangle else false
+     * @return : true if all points of the ship are within the rectangle else false
      */
     @Override
     public boolean isContained(double x1, double y1, double x2, double y2) {
-        return IntStream.range(0, displayXs.length).noneMatch(i -> (displayXs[i] < x1) || (displayXs[i] > x2) || (displayYs[i] < y1) || (displayYs[i] > y2));
+        // bounding box is made of the outermost points, so every point is inside when the box is
+        return store.left[slot] >= x1 && store.right[slot] <= x2 && store.top[slot] >= y1 && store.bottom[slot] <= y2;
     }
 
     /**
-     * Method to get an array of x coordinates for a ship.
+     * Method to get the x coordinate the ship is translated to.
      *
-     * @return : array of x coordinates to draw
+     * @return : x coordinate of the ship
      */
-    public double[] getDisplayXs() {
-        return displayXs;
+    public double getTranslateX() {
+        return store.translateX[slot];
+    }
+
+    /**
+     * Method to get the y coordinate the ship is translated to.
+     *
+     * @return : y coordinate of the ship
+     */
+    public double getTranslateY() {
+        return store.translateY[slot];
     }
 
     /**
-     * Method to set new display x coordinates for the ship.
+     * Method to get the group this ship is a child of.
      *
-     * @param displayXs : x coordinates
+     * @return : parent group, or null if the ship is not part of a group
      */
-    public void setDisplayXs(double[] displayXs) {
-        this.displayXs = displayXs;
+    @Override
+    public ShipGroup getParent() {
+        return parent;
     }
 
     /**
-     * Method to get an array of y coordinates for a ship.
+     * Method to set the group this ship is a child of.
+     *
+     * @param parent : parent group, or null if the ship is no longer part of a group
+     */
+    @Override
+    public void setParent(ShipGroup parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Method to get the shape of the ship.
+     *
+     * @return : shared shape of the ship
+     */
+    public ShipShape getShape() {
+        return ShipShape.byId(store.shapeId[slot]);
+    }
+
+    /**
+     * Method to get an array of x coordinates for a ship. A new array is computed on every call, renderers should use
+     * writeDisplayCoordinates with their own buffers instead.
+     *
+     * @return : array of x coordinates to draw
+     */
+    public double[] getDisplayXs() {
+        double[] xs = new double[displayLength()];
+        writeDisplayCoordinates(xs, new double[xs.length]);
+        return xs;
+    }
+
+    /**
+     * Method to get an array of y coordinates for a ship. A new array is computed on every call, renderers should use
+     * writeDisplayCoordinates with their own buffers instead.
      *
      * @return : array of y coordinate to draw
      */
     public double[] getDisplayYs() {
-        return displayYs;
+        double[] ys = new double[displayLength()];
+        writeDisplayCoordinates(new double[ys.length], ys);
+        return ys;
+    }
+
+    /**
+     * Method to write the display coordinates of the ship into the given arrays.
+     *
+     * @param xs : array to write x coordinates into, at least displayLength long
+     * @param ys : array to write y coordinates into, at least displayLength long
+     */
+    public void writeDisplayCoordinates(double[] xs, double[] ys) {
+        writeDisplayCoordinates(xs, ys, 0);
     }
 
     /**
-     * Method to set new display y coordinates for the ship.
+     * Method to write the display coordinates of the ship into the given arrays, starting at an offset. Lets a batch
+     * of many ships share one pair of arrays.
      *
-     * @param displayYs : y coordinates
+     * @param xs     : array to write x coordinates into, at least offset + displayLength long
+     * @param ys     : array to write y coordinates into, at least offset + displayLength long
+     * @param offset : index to write the first coordinate at
      */
-    public void setDisplayYs(double[] displayYs) {
-        this.displayYs = displayYs;
+    public void writeDisplayCoordinates(double[] xs, double[] ys, int offset) {
+        ShipShape shape = getShape();
+        double translateX = store.translateX[slot], translateY = store.translateY[slot];
+        double c = store.cos[slot], s = store.sin[slot];
+        for (int i = 0; i < shape.xs.length; i++) {
+            xs[offset + i] = shape.xs[i] * c - shape.ys[i] * s + translateX;
+            ys[offset + i] = shape.xs[i] * s + shape.ys[i] * c + translateY;
+        }
     }
 
     /**
@@ -229,30 +324,17 @@ public class Ship implements Groupable {
      * @return : number of coordinates
      */
     public int displayLength() {
-        return displayXs.length;
+        return getShape().xs.length;
     }
 
     /**
-     * Method to return a deep copy of the ship.
+     * Method to return a deep copy of the ship. The copy shares the shape of this ship and lives in a store shared
+     * with other ships created outside of a model.
      *
      * @return : deep copy
      */
     @Override
     public Groupable duplicate() {
-        Ship deepCopy = new Ship(translateX, translateY);
-        deepCopy.setDisplayXs(this.displayXs.clone());
-        deepCopy.setDisplayYs(this.displayYs.clone());
-        deepCopy.recalculateBounds();
-        return deepCopy;
-    }
-
-    /**
-     * Helper method to calculate bounding box coordinates for the ship.
-     */
-    private void recalculateBounds() {
-        left = DoubleStream.of(displayXs).min().getAsDouble();
-        right = DoubleStream.of(displayXs).max().getAsDouble();
-        top = DoubleStream.of(displayYs).min().getAsDouble();
-        bottom = DoubleStream.of(displayYs).max().getAsDouble();
+        return new Ship(ShipStore.detached(), getShape(), store.translateX[slot], store.translateY[slot], getAngle());
     }
 }
@@ -1,14 +1,24 @@
 package com.example.ships_application;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * Application class which starts up a JavaFX stage with a canvas to create, move and select Ships or group of Ships.
  */
 public class ShipApplication extends Application {
+    // log every change of the model is autosaved to
+    AutosaveLog autosave;
+    // simulation of ships sailing on their own
+    FleetSimulation simulation;
+
     /**
      * Java method that runs first and starts up 'start' function to start the JavaFX application.
      *
@@ -32,6 +42,8 @@ public class ShipApplication extends Application {
         ShipController controller = new ShipController();
         ShipModel model = new ShipModel();
         InteractionModel iModel = new InteractionModel();
+        ShipMetrics metrics = new ShipMetrics();
+        UndoJournal journal = new UndoJournal(model, iModel);
 
         /*
             Connect MVC components to each other. View uses publish-subscribe communication model.
@@ -44,6 +56,38 @@ public class ShipApplication extends Application {
         model.addSubscriber(view);
         iModel.addSubscriber(view);
 
+        /*
+            Restore the autosaved scene before the journal and the autosave log listen, so restoring is neither undoable
+            nor logged again.
+         */
+        autosave = new AutosaveLog(Path.of("autosave"));
+        autosave.setFailureHandler(e -> Platform.runLater(() -> new Alert(Alert.AlertType.WARNING,
+                "Autosave has stopped, changes are no longer saved: " + e.getMessage()).show()));
+        try {
+            autosave.recover(model);
+            model.addSubscriber(autosave);
+            controller.setAutosave(autosave);
+        } catch (IOException e) {
+            System.err.println("Autosave is off, could not open it: " + e.getMessage());
+        }
+        model.addSubscriber(journal);
+        controller.setJournal(journal);
+        simulation = new FleetSimulation(model);
+        model.addSubscriber(simulation);
+        controller.setSimulation(simulation);
+        CollisionDetector collisions = new CollisionDetector(model);
+        model.addSubscriber(collisions);
+        view.setCollisionDetector(collisions);
+        controller.setCollisionDetector(collisions);
+
+        /*
+            Share one metrics instance between the MVC components, toggled by the controller and drawn by the view.
+         */
+        model.setMetrics(metrics);
+        iModel.setMetrics(metrics);
+        controller.setMetrics(metrics);
+        view.setMetrics(metrics);
+
         /*
             Setup stage and show scene.
          */
@@ -53,4 +97,16 @@ public class ShipApplication extends Application {
         stage.show();
         scene.setOnKeyPressed(controller::handleKeyPressed);
     }
+
+    /**
+     * Method that runs when the application exits. Stops the simulation where it is and writes out the changes the
+     * autosave log has not written yet.
+     *
+     * @throws InterruptedException : if interrupted while waiting for the autosave log
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        simulation.stop();
+        autosave.close();
+    }
 }
\ No newline at end of file
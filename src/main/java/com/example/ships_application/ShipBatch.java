@@ -0,0 +1,119 @@
+package com.example.ships_application;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Paint;
+
+import java.util.Arrays;
+
+/**
+ * Class to collect polygons that are drawn with the same style so they can be submitted as one path. Instead of a
+ * fill and a stroke command with their own colour changes for every ship, a flush sets the colours once and fills and
+ * strokes all collected polygons together.
+ */
+public class ShipBatch {
+    /*
+        Instance variables to store the coordinates of all collected polygons back to back, the number of points of
+        each polygon, and how many points/polygons are collected.
+     */
+    double[] xs, ys;
+    int[] lengths;
+    int points, polygons;
+
+    /**
+     * Default constructor for this class.
+     */
+    public ShipBatch() {
+        xs = new double[256];
+        ys = new double[256];
+        lengths = new int[32];
+    }
+
+    /**
+     * Method to add the outline of a ship to the batch.
+     *
+     * @param ship : ship to add
+     */
+    public void addShip(Ship ship) {
+        int n = ship.displayLength();
+        reserve(n);
+        ship.writeDisplayCoordinates(xs, ys, points);
+        points += n;
+        lengths[polygons++] = n;
+    }
+
+    /**
+     * Method to add a rectangle to the batch.
+     *
+     * @param x      : x coordinate of the left edge
+     * @param y      : y coordinate of the top edge
+     * @param width  : width of the rectangle
+     * @param height : height of the rectangle
+     */
+    public void addRect(double x, double y, double width, double height) {
+        reserve(4);
+        xs[points] = x;
+        ys[points] = y;
+        xs[points + 1] = x + width;
+        ys[points + 1] = y;
+        xs[points + 2] = x + width;
+        ys[points + 2] = y + height;
+        xs[points + 3] = x;
+        ys[points + 3] = y + height;
+        points += 4;
+        lengths[polygons++] = 4;
+    }
+
+    /**
+     * Method to get how many points are collected.
+     *
+     * @return : number of points
+     */
+    public int size() {
+        return points;
+    }
+
+    /**
+     * Method to draw all collected polygons as one path and empty the batch.
+     *
+     * @param gc     : graphics context to draw on
+     * @param fill   : colour to fill the polygons with, or null to not fill them
+     * @param stroke : colour to outline the polygons with, or null to not outline them
+     */
+    public void flush(GraphicsContext gc, Paint fill, Paint stroke) {
+        if (polygons == 0) return;
+        gc.beginPath();
+        int point = 0;
+        for (int i = 0; i < polygons; i++) {
+            gc.moveTo(xs[point], ys[point]);
+            for (int end = point + lengths[i], j = point + 1; j < end; j++) {
+                gc.lineTo(xs[j], ys[j]);
+            }
+            gc.closePath();
+            point += lengths[i];
+        }
+        if (fill != null) {
+            gc.setFill(fill);
+            gc.fill();
+        }
+        if (stroke != null) {
+            gc.setStroke(stroke);
+            gc.stroke();
+        }
+        points = 0;
+        polygons = 0;
+    }
+
+    /**
+     * Helper method to make room for another polygon.
+     *
+     * @param n : number of points of the polygon
+     */
+    private void reserve(int n) {
+        if (points + n > xs.length) {
+            int capacity = Math.max(xs.length * 2, points + n);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+        if (polygons == lengths.length) lengths = Arrays.copyOf(lengths, polygons * 2);
+    }
+}
@@ -1,39 +1,215 @@
 package com.example.ships_application;
 
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 /**
- * Class to represent a clipboard to allow cut, copy and paste of ships in the application.
+ * Class to represent a clipboard to allow cut, copy and paste of ships in the application. Copied ships/groups are
+ * kept as an immutable snapshot of primitive arrays instead of as ship objects, so copying walks the selection once
+ * without allocating an object per ship, and every paste shares the same snapshot and only builds the new ships.
+ * Pasting builds every ship right away rather than lazily: a pasted ship is drawn, indexed, checked for collisions
+ * and autosaved in the same pulse, so a lazy node would be expanded at once anyway and would only add a check to
+ * every access of a ship.
  */
 public class ShipClipboard {
-    // List of ships or groups that are copied or cut
-    ArrayList<Groupable> clipboard;
+    // Snapshot of the ships or groups that are copied or cut, never changed once taken
+    Snapshot snapshot;
 
     /**
-     * Default constructor for this class. Initializes the clipboard ArrayList.
+     * Class to represent copied ships/groups as flat arrays. The trees of the copied items are written in preorder:
+     * every node has an entry in nodes, which is the number of children for a group or -1 for a ship, and every ship
+     * has an entry in the shape, coordinate and angle columns in the same order.
+     */
+    public static class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, new int[0], new int[0], new double[0], new double[0],
+                new double[0], 0);
+
+        final int roots;
+        final int[] nodes;
+        final int[] shapeIds;
+        final double[] xs, ys, angles;
+        final int shipCount;
+
+        Snapshot(int roots, int[] nodes, int[] shapeIds, double[] xs, double[] ys, double[] angles, int shipCount) {
+            this.roots = roots;
+            this.nodes = nodes;
+            this.shapeIds = shapeIds;
+            this.xs = xs;
+            this.ys = ys;
+            this.angles = angles;
+            this.shipCount = shipCount;
+        }
+
+        /**
+         * Method to take a snapshot of ships/groups.
+         *
+         * @param items : ships/groups to copy
+         * @return : new snapshot
+         */
+        public static Snapshot of(ArrayList<Groupable> items) {
+            Writer writer = new Writer(items.size());
+            items.forEach(writer::write);
+            return writer.finish(items.size());
+        }
+
+        /**
+         * Method to build new ships/groups from the snapshot. The ships are allocated in the given store, so a paste
+         * into the model can use the store of the model and does not have to move them again. The whole tree is built
+         * in one pass over the columns, with one object per ship and group and no copying of the snapshot.
+         *
+         * @param store : store to allocate the new ships in
+         * @return : list of new top-level ships/groups
+         */
+        public ArrayList<Groupable> materialise(ShipStore store) {
+            ArrayList<Groupable> items = new ArrayList<>(roots);
+            // cursors into nodes and into the ship columns
+            int[] cursor = new int[2];
+            for (int i = 0; i < roots; i++) {
+                items.add(build(store, cursor));
+            }
+            return items;
+        }
+
+        /**
+         * Helper method to build the node at the cursor and, for a group, all of its children.
+         *
+         * @param store  : store to allocate the new ships in
+         * @param cursor : position in nodes and in the ship columns, advanced past the node
+         * @return : new ship/group
+         */
+        private Groupable build(ShipStore store, int[] cursor) {
+            int children = nodes[cursor[0]++];
+            if (children < 0) {
+                int ship = cursor[1]++;
+                return new Ship(store, ShipShape.byId(shapeIds[ship]), xs[ship], ys[ship], angles[ship]);
+            }
+            ArrayList<Groupable> ships = new ArrayList<>(children);
+            for (int i = 0; i < children; i++) {
+                ships.add(build(store, cursor));
+            }
+            ShipGroup group = new ShipGroup();
+            group.setShips(ships);
+            return group;
+        }
+
+        /**
+         * Method to get how many ships are in the snapshot, counting the ships inside groups.
+         *
+         * @return : number of ships
+         */
+        public int shipCount() {
+            return shipCount;
+        }
+
+        /**
+         * Method to get how many top-level ships/groups are in the snapshot.
+         *
+         * @return : number of top-level items
+         */
+        public int size() {
+            return roots;
+        }
+    }
+
+    /**
+     * Helper class to write ships/groups into growing columns while a snapshot is taken.
+     */
+    static class Writer {
+        int[] nodes, shapeIds;
+        double[] xs, ys, angles;
+        int nodeCount, shipCount;
+
+        Writer(int capacity) {
+            capacity = Math.max(16, capacity);
+            nodes = new int[capacity];
+            shapeIds = new int[capacity];
+            xs = new double[capacity];
+            ys = new double[capacity];
+            angles = new double[capacity];
+        }
+
+        /**
+         * Method to write a ship/group and its children in preorder.
+         *
+         * @param item : ship/group to write
+         */
+        void write(Groupable item) {
+            if (nodeCount == nodes.length) nodes = Arrays.copyOf(nodes, nodeCount * 2);
+            if (!item.hasChildren()) {
+                nodes[nodeCount++] = -1;
+                if (shipCount == xs.length) {
+                    shapeIds = Arrays.copyOf(shapeIds, shipCount * 2);
+                    xs = Arrays.copyOf(xs, shipCount * 2);
+                    ys = Arrays.copyOf(ys, shipCount * 2);
+                    angles = Arrays.copyOf(angles, shipCount * 2);
+                }
+                Ship ship = (Ship) item;
+                shapeIds[shipCount] = ship.store.shapeId[ship.slot];
+                xs[shipCount] = ship.store.translateX[ship.slot];
+                ys[shipCount] = ship.store.translateY[ship.slot];
+                angles[shipCount] = ship.store.angle[ship.slot];
+                shipCount++;
+            } else {
+                ArrayList<Groupable> children = item.getChildren();
+                nodes[nodeCount++] = children.size();
+                children.forEach(this::write);
+            }
+        }
+
+        /**
+         * Method to trim the columns and turn them into a snapshot.
+         *
+         * @param roots : number of top-level items written
+         * @return : new snapshot
+         */
+        Snapshot finish(int roots) {
+            return new Snapshot(roots, Arrays.copyOf(nodes, nodeCount), Arrays.copyOf(shapeIds, shipCount),
+                    Arrays.copyOf(xs, shipCount), Arrays.copyOf(ys, shipCount), Arrays.copyOf(angles, shipCount),
+                    shipCount);
+        }
+    }
+
+    /**
+     * Default constructor for this class. Starts with an empty clipboard.
      */
     public ShipClipboard() {
-        clipboard = new ArrayList<>();
+        snapshot = Snapshot.EMPTY;
     }
 
     /**
-     * Method to add ships/groups to the clipboard.
+     * Method to add ships/groups to the clipboard, replacing what was there.
      *
      * @param selectedShips : list of ships/groups to be added to the clipboard
      */
     public void add(ArrayList<Groupable> selectedShips) {
-        // deep copy each ship/group in the list and add it to the clipboard
-        clipboard = selectedShips.stream().map(Groupable::duplicate).collect(Collectors.toCollection(ArrayList::new));
+        snapshot = Snapshot.of(selectedShips);
     }
 
     /**
-     * Method to get ships/groups from the clipboard.
+     * Method to get new ships/groups from the clipboard. The ships share a new store sized for them.
      *
      * @return : list of ships/group from the clipboard
      */
     public ArrayList<Groupable> get() {
-        // return a deep copy of each ship/group from the clipboard
-        return clipboard.stream().map(Groupable::duplicate).collect(Collectors.toCollection(ArrayList::new));
+        return get(new ShipStore(snapshot.shipCount()));
+    }
+
+    /**
+     * Method to get new ships/groups from the clipboard, allocated in the given store.
+     *
+     * @param store : store to allocate the new ships in
+     * @return : list of ships/group from the clipboard
+     */
+    public ArrayList<Groupable> get(ShipStore store) {
+        return snapshot.materialise(store);
+    }
+
+    /**
+     * Method to get the snapshot currently on the clipboard. It is immutable, so it can be shared freely.
+     *
+     * @return : snapshot of the copied ships/groups
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
     }
 }
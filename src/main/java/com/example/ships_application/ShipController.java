@@ -1,14 +1,21 @@
 package com.example.ships_application;
 
+import javafx.application.Platform;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Optional;
 
 /**
  * Controller for the MVC Architecture. Overloads mouse clicks and handles the interactions from view to model and imodel.
+ * Mouse events arrive in screen coordinates and are converted to world coordinates with the camera of the iModel, the
+ * overloads without JavaFX events take world coordinates.
  */
 public class ShipController {
     /*
@@ -18,12 +25,34 @@ public class ShipController {
     ShipModel model;
     double prevX, prevY, rubX, rubY;
     double dX, dY;
+    // world point that stays under the mouse while panning
+    double panX, panY;
+    // point the selection is rotated around and the angle of the mouse around it at the last drag
+    double pivotX, pivotY, prevAngle;
+    // trace that every handled input is appended to, or null when not recording
+    InputTrace recorder;
+    // metrics that are reset on every input and toggled with F3
+    ShipMetrics metrics;
+    // history of model changes for undo/redo, or null when changes are not journaled
+    UndoJournal journal;
+    // simulation the fleet is started and stopped with, or null when ships cannot sail
+    FleetSimulation simulation;
+    // log the model is autosaved to, or null when autosave is off
+    AutosaveLog autosave;
+    // detector of overlapping ships that is turned on and off, or null when it is not available
+    CollisionDetector collisions;
+    // file the scene is saved to and loaded from, the thread writing the last saved scene, and the thread streaming a
+    // scene in while one is loading
+    Path scenePath;
+    Thread saver, loader;
+    // ships/groups the scene being loaded replaced, kept until the whole file has been read
+    ArrayList<Groupable> replacedScene;
 
     /*
         States of the State-Machine used by the Controller to Over-load mouse clicks and keyboard presses.
      */
     protected enum State {
-        READY, DRAGGING, RUBBER
+        READY, DRAGGING, RUBBER, PANNING, ROTATING
     }
 
     /*
@@ -36,6 +65,17 @@ public class ShipController {
      */
     public ShipController() {
         currentState = State.READY;
+        metrics = new ShipMetrics();
+        scenePath = Path.of("scene.ships");
+    }
+
+    /**
+     * Method to set the file the scene is saved to and loaded from.
+     *
+     * @param scenePath : scene file
+     */
+    public void setScenePath(Path scenePath) {
+        this.scenePath = scenePath;
     }
 
     /**
@@ -57,13 +97,106 @@ public class ShipController {
     }
 
     /**
-     * Method to handle mouse presses.
+     * Method to start or stop recording the handled inputs, e.g. to replay them later with InteractionReplay.
+     *
+     * @param recorder : trace to append inputs to, or null to stop recording
+     */
+    public void setRecorder(InputTrace recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Method to set the metrics the controller marks inputs in.
+     *
+     * @param metrics : shared metrics of the application
+     */
+    public void setMetrics(ShipMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method to set the journal used to undo and redo changes.
+     *
+     * @param journal : journal subscribed to the model, or null to disable undo
+     */
+    public void setJournal(UndoJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Method to set the autosave log that is told when a fleet stops.
+     *
+     * @param autosave : log subscribed to the model, or null if autosave is off
+     */
+    public void setAutosave(AutosaveLog autosave) {
+        this.autosave = autosave;
+    }
+
+    /**
+     * Method to set the simulation that selected ships sail in.
+     *
+     * @param simulation : simulation subscribed to the model, or null to disable sailing
+     */
+    public void setSimulation(FleetSimulation simulation) {
+        this.simulation = simulation;
+    }
+
+    /**
+     * Method to set the collision detector that is turned on and off with H.
      *
-     * @param x     : x coordinate of the mouse click
-     * @param y     : y coordinate of the mouse click
+     * @param collisions : collision detector subscribed to the model
+     */
+    public void setCollisionDetector(CollisionDetector collisions) {
+        this.collisions = collisions;
+    }
+
+    /**
+     * Method to handle mouse presses. Pressing a button other than the primary one starts panning the camera.
+     *
+     * @param x     : x coordinate of the mouse click on screen
+     * @param y     : y coordinate of the mouse click on screen
      * @param event : mouse event
      */
     public void handlePressed(double x, double y, MouseEvent event) {
+        Camera camera = iModel.getCamera();
+        if (event.getButton() != MouseButton.PRIMARY) {
+            if (currentState == State.READY) {
+                // side effect: the world point under the mouse is held there while the mouse is dragged
+                panX = camera.toWorldX(x);
+                panY = camera.toWorldY(y);
+                currentState = State.PANNING;
+            }
+            return;
+        }
+        handlePressed(camera.toWorldX(x), camera.toWorldY(y), event.isShiftDown(), event.isControlDown(),
+                event.isAltDown());
+    }
+
+    /**
+     * Method to handle mouse presses without a JavaFX event, e.g. when replaying inputs.
+     *
+     * @param x           : x coordinate of the mouse click
+     * @param y           : y coordinate of the mouse click
+     * @param shiftDown   : true if the shift key is held
+     * @param controlDown : true if the control key is held
+     */
+    public void handlePressed(double x, double y, boolean shiftDown, boolean controlDown) {
+        handlePressed(x, y, shiftDown, controlDown, false);
+    }
+
+    /**
+     * Method to handle mouse presses without a JavaFX event. Pressing on a ship with the alt key held starts rotating
+     * the selection around its centre.
+     *
+     * @param x           : x coordinate of the mouse click
+     * @param y           : y coordinate of the mouse click
+     * @param shiftDown   : true if the shift key is held
+     * @param controlDown : true if the control key is held
+     * @param altDown     : true if the alt key is held
+     */
+    public void handlePressed(double x, double y, boolean shiftDown, boolean controlDown, boolean altDown) {
+        if (recorder != null) recorder.press(x, y, shiftDown, controlDown, altDown);
+        metrics.beginInput();
         prevX = x;
         prevY = y;
         switch (currentState) {
@@ -71,11 +204,19 @@ public class ShipController {
                 Optional<Groupable> hit = model.detectHit(x, y);
                 // context: clicked on a ship
                 if (hit.isPresent()) {
-                    if (event.isControlDown()) {
+                    if (altDown) {
+                        // context: alt button is pressed
+                        // side effect: the clicked ship joins the selection if it is not in it, and the selection
+                        // turns around the centre of its bounding box while the mouse is dragged
+                        if (!iModel.isSelected(hit.get())) iModel.newSelection(hit.get());
+                        startRotation(x, y);
+                        return;
+                    }
+                    if (controlDown) {
                         // context: control button is pressed
                         // side effect: add the ship to current selection if not already selected else remove it from selection
                         iModel.addSelected(hit.get());
-                    } else if (iModel.getSelectedShips().contains(hit.get())) {
+                    } else if (iModel.isSelected(hit.get())) {
                         // context: control button is not pressed and ship clicked is selected already
                         // side effect: move to dragging state to move all selected ships together
                     } else {
@@ -86,14 +227,14 @@ public class ShipController {
                     currentState = State.DRAGGING;
                 } else {
                     // context: clicked on background
-                    if (event.isShiftDown()) {
+                    if (shiftDown) {
                         // context: shift button is pressed
                         // side effect: create new ship and switch state to dragging
                         Ship newShip = model.createShip(x, y);
                         iModel.newSelection(newShip);
                         currentState = State.DRAGGING;
                     } else {
-                        if (!(event.isControlDown())) {
+                        if (!controlDown) {
                             // context: when control is not pressed
                             // side effect: allows rubber-band to deselect ships that are already selected when control is down
                             // and clear existing selection
@@ -115,11 +256,29 @@ public class ShipController {
     /**
      * Method to handle mouse drags.
      *
-     * @param x     : x coordinate of the mouse click
-     * @param y     : y coordinate of the mouse click
+     * @param x     : x coordinate of the mouse on screen
+     * @param y     : y coordinate of the mouse on screen
      * @param event : mouse event
      */
     public void handleDragged(double x, double y, MouseEvent event) {
+        Camera camera = iModel.getCamera();
+        if (currentState == State.PANNING) {
+            // side effect: camera moves so the world point grabbed on press is under the mouse again
+            iModel.pan(panX - camera.toWorldX(x), panY - camera.toWorldY(y));
+            return;
+        }
+        handleDragged(camera.toWorldX(x), camera.toWorldY(y));
+    }
+
+    /**
+     * Method to handle mouse drags without a JavaFX event, e.g. when replaying inputs.
+     *
+     * @param x : x coordinate of the mouse
+     * @param y : y coordinate of the mouse
+     */
+    public void handleDragged(double x, double y) {
+        if (recorder != null) recorder.drag(x, y);
+        metrics.beginInput();
         dX = x - prevX;
         dY = y - prevY;
         prevX = x;
@@ -129,64 +288,160 @@ public class ShipController {
             case DRAGGING -> model.move(iModel.getSelectedShips(), dX, dY);
             // Mouse move on Rubber state resizes the rubber-band rectangle used for selection
             case RUBBER -> iModel.resizeRubberBand(rubX, rubY, x, y);
+            // Mouse move on Rotating state turns selected shapes by the angle the mouse moved around the pivot
+            case ROTATING -> {
+                double angle = Math.atan2(y - pivotY, x - pivotX);
+                double dAngle = Math.IEEEremainder(angle - prevAngle, 2 * Math.PI);
+                prevAngle = angle;
+                model.rotate(iModel.getSelectedShips(), dAngle, pivotX, pivotY);
+            }
         }
     }
 
+    /**
+     * Helper method to start rotating the selection around the centre of its bounding box.
+     *
+     * @param x : x coordinate of the mouse
+     * @param y : y coordinate of the mouse
+     */
+    private void startRotation(double x, double y) {
+        double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+        for (Groupable item : iModel.getSelectedShips()) {
+            left = Math.min(left, item.getLeft());
+            top = Math.min(top, item.getTop());
+            right = Math.max(right, item.getRight());
+            bottom = Math.max(bottom, item.getBottom());
+        }
+        pivotX = (left + right) / 2;
+        pivotY = (top + bottom) / 2;
+        prevAngle = Math.atan2(y - pivotY, x - pivotX);
+        currentState = State.ROTATING;
+    }
+
     /**
      * Method to handle mouse release.
      *
-     * @param x     : x coordinate of the mouse click
-     * @param y     : y coordinate of the mouse click
+     * @param x     : x coordinate of the mouse on screen
+     * @param y     : y coordinate of the mouse on screen
      * @param event : mouse event
      */
     public void handleReleased(double x, double y, MouseEvent event) {
+        if (currentState == State.PANNING) {
+            if (event.getButton() != MouseButton.PRIMARY) currentState = State.READY;
+            return;
+        }
+        Camera camera = iModel.getCamera();
+        handleReleased(camera.toWorldX(x), camera.toWorldY(y));
+    }
+
+    /**
+     * Method to handle the mouse wheel, which zooms the camera around the mouse.
+     *
+     * @param x     : x coordinate of the mouse on screen
+     * @param y     : y coordinate of the mouse on screen
+     * @param event : scroll event
+     */
+    public void handleScroll(double x, double y, ScrollEvent event) {
+        if (event.getDeltaY() == 0) return;
+        // one notch of the wheel zooms by 10%
+        iModel.zoom(x, y, Math.pow(1.1, event.getDeltaY() / 40));
+    }
+
+    /**
+     * Method to handle mouse release without a JavaFX event, e.g. when replaying inputs.
+     *
+     * @param x : x coordinate of the mouse
+     * @param y : y coordinate of the mouse
+     */
+    public void handleReleased(double x, double y) {
+        if (recorder != null) recorder.release(x, y);
+        metrics.beginInput();
+        // a drag ends here, so its moves are not merged with the next one
+        if (journal != null) journal.seal();
         switch (currentState) {
-            case DRAGGING -> {
+            case DRAGGING, ROTATING -> {
                 currentState = State.READY;
             }
             case RUBBER -> {
                 // side effect: check all ships that are within the rectangle and select them in iModel
-                // clear rectangle object and clear temporary model's selection
+                // and clear rectangle object
                 currentState = State.READY;
                 ArrayList<Groupable> rubberHitShips = model.detectRubberBandHit(iModel.getRubberBand());
                 iModel.clearRubberBand();
-                model.clearSelection();
-                rubberHitShips.forEach(s -> iModel.addSelected(s));
+                iModel.addSelected(rubberHitShips);
             }
         }
     }
 
     /**
-     * Method to handle key presses. Supports cut, copy, paste, grouping and ungrouping of ships.
+     * Method to handle key presses. Supports cut, copy, paste, undo, redo, saving and loading the scene, grouping and
+     * ungrouping of ships, starting and stopping the simulation, and toggling collision highlighting and the metrics
+     * overlay.
      *
      * @param keyEvent key event
      */
     public void handleKeyPressed(KeyEvent keyEvent) {
+        handleKeyPressed(keyEvent.getCode(), keyEvent.isControlDown());
+    }
+
+    /**
+     * Method to handle key presses without a JavaFX event, e.g. when replaying inputs.
+     *
+     * @param code        : key that was pressed
+     * @param controlDown : true if the control key is held
+     */
+    public void handleKeyPressed(KeyCode code, boolean controlDown) {
+        if (recorder != null) recorder.key(code, controlDown);
+        metrics.beginInput();
+        if (code == KeyCode.F3) {
+            // event: F3 pressed in any state
+            // side effect: metrics overlay is shown or hidden
+            metrics.setEnabled(!metrics.isEnabled());
+            return;
+        }
         switch (currentState) {
             case READY -> {
-                if (keyEvent.isControlDown()) {
-                    if (keyEvent.getCode() == KeyCode.C) {
+                if (controlDown) {
+                    if (code == KeyCode.C) {
                         // event: c pressed for copy
                         // side effect: currently selected items are copied to the clipboard
                         iModel.copyToClipboard();
-                    } else if (keyEvent.getCode() == KeyCode.X) {
+                    } else if (code == KeyCode.X) {
                         // event: x pressed for cut
                         // side effect: currently selected items are removed from the selection and added to the clipboard
                         // and items are removed from the model
                         model.remove(iModel.cutToClipboard());
-                    } else if (keyEvent.getCode() == KeyCode.V) {
+                        iModel.clearSelection();
+                    } else if (code == KeyCode.V) {
                         // event: v pressed for paste
                         // side effect: items from the clipboard are made the new selection and are added to the model
-                        model.add(iModel.pasteFromClipboard());
+                        model.add(iModel.pasteFromClipboard(model.getStore()));
+                    } else if (code == KeyCode.Z && journal != null) {
+                        // event: z pressed for undo
+                        // side effect: last change to the model is reverted and what it affected is selected
+                        journal.undo();
+                    } else if (code == KeyCode.Y && journal != null) {
+                        // event: y pressed for redo
+                        // side effect: last undone change is applied again and what it affected is selected
+                        journal.redo();
+                    } else if (code == KeyCode.S) {
+                        // event: s pressed for save
+                        // side effect: every ship/group is written to the scene file
+                        saveScene();
+                    } else if (code == KeyCode.O) {
+                        // event: o pressed for open
+                        // side effect: the scene is replaced by the one in the scene file, which is streamed in
+                        loadScene();
                     }
                 } else {
-                    if (keyEvent.getCode() == KeyCode.G) {
+                    if (code == KeyCode.G) {
                         // event: G key is pressed
                         // side effect: currently selected items converted to a group
                         // and individual items removed and replaced with the group in model.
                         // also, new group is now selected in the iModel.
                         iModel.newSelection(model.createGroup(iModel.getSelectedShips()));
-                    } else if (keyEvent.getCode() == KeyCode.U) {
+                    } else if (code == KeyCode.U) {
                         // event: U key is pressed
                         ArrayList<Groupable> selectedShips = iModel.getSelectedShips();
                         if (selectedShips.size() == 1 && selectedShips.get(0).hasChildren()) {
@@ -196,9 +451,120 @@ public class ShipController {
                             Groupable group = selectedShips.get(0);
                             iModel.newSelection(model.ungroup(group));
                         }
+                    } else if (code == KeyCode.P && simulation != null) {
+                        // event: P key is pressed
+                        // side effect: selected ships/groups, or all of them if none are selected, start or stop
+                        // sailing. A whole voyage is undone as one change.
+                        toggleSimulation();
+                    } else if (code == KeyCode.H && collisions != null) {
+                        // event: H key is pressed
+                        // side effect: ships overlapping other ships are found and highlighted, or no longer
+                        collisions.setEnabled(!collisions.isEnabled());
                     }
                 }
             }
         }
     }
+
+    /**
+     * Helper method to start the simulation with the selection, or the whole scene if nothing is selected, or to
+     * stop it if it is running.
+     */
+    private void toggleSimulation() {
+        if (journal != null) journal.seal();
+        if (simulation.isRunning()) {
+            simulation.stop();
+            if (journal != null) journal.seal();
+            if (autosave != null) autosave.seal();
+        } else {
+            ArrayList<Groupable> fleet = iModel.getSelectedShips();
+            simulation.start(fleet.isEmpty() ? model.getShips() : fleet);
+        }
+    }
+
+    /**
+     * Helper method to save every ship/group of the model to the scene file. A snapshot of the scene is taken on the
+     * FX thread and written by a background thread, after the save before it has finished.
+     */
+    private void saveScene() {
+        ShipClipboard.Snapshot snapshot = ShipClipboard.Snapshot.of(model.getShips());
+        Path path = scenePath;
+        Thread previous = saver;
+        // not a daemon, so a save that is still being written when the application quits is finished
+        saver = new Thread(() -> {
+            try {
+                if (previous != null) previous.join();
+                SceneFile.save(path, snapshot);
+            } catch (IOException e) {
+                System.err.println("Could not save scene to " + path + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "scene-saver");
+        saver.start();
+    }
+
+    /**
+     * Helper method to replace the scene with the one in the scene file. The file is read on a background thread and
+     * every batch is added to the model on the FX thread as soon as it is read, so the first ships are drawn while
+     * the rest are still loading. The scene is only replaced once the header and the first batch have been read, so a
+     * missing file or a corrupt header leaves it as it is. If the file turns out to be corrupt after that, the scene
+     * it replaced is put back. A whole load is undone as one change.
+     */
+    private void loadScene() {
+        if (loader != null && loader.isAlive()) return;
+        Path path = scenePath;
+        loader = new Thread(() -> {
+            // number of batches handed to the FX thread so far
+            int[] batches = new int[1];
+            try {
+                SceneFile.stream(path, SceneFile.DEFAULT_BATCH_SHIPS, batch -> {
+                    boolean first = batches[0]++ == 0;
+                    Platform.runLater(() -> addLoadedBatch(batch, first));
+                });
+                // an empty scene has no batches but still replaces the current one
+                if (batches[0] == 0) Platform.runLater(() -> addLoadedBatch(new ArrayList<>(), true));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not load scene from " + path + ": " + e.getMessage());
+                if (batches[0] > 0) Platform.runLater(this::restoreReplacedScene);
+            } finally {
+                Platform.runLater(() -> {
+                    replacedScene = null;
+                    if (journal != null) journal.endCompound();
+                });
+            }
+        }, "scene-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Helper method to add a batch of a scene being loaded to the model. The first batch replaces the scene.
+     *
+     * @param batch : top-level ships/groups read from the scene file
+     * @param first : true for the first batch of the file
+     */
+    void addLoadedBatch(ArrayList<Groupable> batch, boolean first) {
+        if (first) {
+            // the removal and every batch after it are undone as one change
+            if (journal != null) journal.beginCompound();
+            iModel.clearSelection();
+            replacedScene = new ArrayList<>(model.getShips());
+            if (!replacedScene.isEmpty()) model.remove(new ArrayList<>(replacedScene));
+        }
+        if (!batch.isEmpty()) model.add(batch);
+    }
+
+    /**
+     * Helper method to put back the scene a load replaced, once the rest of the file turned out to be unreadable. The
+     * part that was loaded is removed and the load is dropped from the history.
+     */
+    void restoreReplacedScene() {
+        if (replacedScene == null) return;
+        iModel.clearSelection();
+        if (!model.getShips().isEmpty()) model.remove(new ArrayList<>(model.getShips()));
+        if (!replacedScene.isEmpty()) model.add(replacedScene);
+        replacedScene = null;
+        if (journal != null) journal.discardCompound();
+    }
 }
@@ -4,14 +4,18 @@ import java.util.ArrayList;
 import java.util.stream.Collectors;
 
 /**
- * Class to represent a group of ships.
+ * Class to represent a group of ships. The bounding box of the group encloses all of its children, so a group also
+ * acts as a node of a bounding-volume hierarchy: queries reject or accept a whole subtree based on the bounds alone.
+ * Moving a group shifts its bounding box, while structural changes recalculate it and invalidate the parent groups.
  */
 public class ShipGroup implements Groupable {
     /*
-     *  Instance variables to store the coordinates for the bounding box and store ships in the group.
+     *  Instance variables to store the coordinates for the bounding box, the ships in the group and the group this
+     *  group is nested in.
      */
     double left, top, right, bottom;
     ArrayList<Groupable> ships;
+    ShipGroup parent;
 
     /**
      * Default constructor for this class.
@@ -36,6 +40,8 @@ public class ShipGroup implements Groupable {
      */
     public void setShips(ArrayList<Groupable> ships) {
         this.ships = ships;
+        ships.forEach(s -> s.setParent(this));
+        invalidateBounds();
     }
 
     /**
@@ -65,11 +71,25 @@ public class ShipGroup implements Groupable {
      */
     public void addChild(Groupable c) {
         ships.add(c);
-        recalculateBounds();
+        c.setParent(this);
+        // a new child can only grow the bounding box, so extend it instead of visiting every child
+        if (ships.size() == 1) {
+            left = c.getLeft();
+            top = c.getTop();
+            right = c.getRight();
+            bottom = c.getBottom();
+        } else {
+            left = Math.min(left, c.getLeft());
+            top = Math.min(top, c.getTop());
+            right = Math.max(right, c.getRight());
+            bottom = Math.max(bottom, c.getBottom());
+        }
+        if (parent != null) parent.invalidateBounds();
     }
 
     /**
-     * Method to check if a set of point is within the group or not.
+     * Method to check if a set of point is within the group or not. Children are only visited when the point is
+     * inside the bounding box of the group.
      *
      * @param x : x coordinate to check
      * @param y : y coordinate to check
@@ -77,18 +97,44 @@ public class ShipGroup implements Groupable {
      */
     @Override
     public boolean contains(double x, double y) {
-        return ships.stream().anyMatch(s -> s.contains(x, y));
+        if (x < left || x > right || y < top || y > bottom) return false;
+        // check the topmost children first since they are the most likely to be clicked
+        for (int i = ships.size() - 1; i >= 0; i--) {
+            if (ships.get(i).contains(x, y)) return true;
+        }
+        return false;
     }
 
     /**
-     * Method to move each child of the group by certain distance.
+     * Method to move each child of the group by certain distance. Every child moves by the same distance, so the
+     * bounding box is shifted rather than recalculated.
      *
      * @param dX : distance to move on x coordinate
      * @param dY : distance to move on y coordinate
      */
     @Override
     public void move(double dX, double dY) {
-        ships.forEach(c -> c.move(dX, dY));
+        for (Groupable c : ships) {
+            c.move(dX, dY);
+        }
+        left += dX;
+        right += dX;
+        top += dY;
+        bottom += dY;
+    }
+
+    /**
+     * Method to rotate every child of the group around a pivot, and fit the bounding box to them again.
+     *
+     * @param dAngle : angle to rotate by, in radians
+     * @param pivotX : x coordinate of the point to rotate around
+     * @param pivotY : y coordinate of the point to rotate around
+     */
+    @Override
+    public void rotate(double dAngle, double pivotX, double pivotY) {
+        for (Groupable c : ships) {
+            c.rotate(dAngle, pivotX, pivotY);
+        }
         recalculateBounds();
     }
 
@@ -133,7 +179,9 @@ public class ShipGroup implements Groupable {
     }
 
     /**
-     * Method to check if the group is within the rubber-band rectangle selection.
+     * Method to check if the group is within the rubber-band rectangle selection. The whole group is accepted when its
+     * bounding box is inside the rectangle and rejected when the bounding box misses the rectangle, without visiting
+     * the children.
      *
      * @param x1 : left x coordinate of the rectangle
      * @param y1 : left y coordinate of the rectangle
@@ -143,7 +191,41 @@ public class ShipGroup implements Groupable {
      */
     @Override
     public boolean isContained(double x1, double y1, double x2, double y2) {
-        return ships.stream().allMatch(s -> s.isContained(x1, y1, x2, y2));
+        if (left >= x1 && right <= x2 && top >= y1 && bottom <= y2) return true;
+        if (right < x1 || left > x2 || bottom < y1 || top > y2) return false;
+        for (Groupable s : ships) {
+            if (!s.isContained(x1, y1, x2, y2)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method to get the group this group is nested in.
+     *
+     * @return : parent group, or null if this group is not nested
+     */
+    @Override
+    public ShipGroup getParent() {
+        return parent;
+    }
+
+    /**
+     * Method to set the group this group is nested in.
+     *
+     * @param parent : parent group, or null if this group is no longer nested
+     */
+    @Override
+    public void setParent(ShipGroup parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Method to recalculate the bounding box after the children of this group changed, along with the bounding box
+     * of every group this group is nested in.
+     */
+    public void invalidateBounds() {
+        recalculateBounds();
+        if (parent != null) parent.invalidateBounds();
     }
 
     /**
@@ -158,7 +240,6 @@ public class ShipGroup implements Groupable {
         // deep copy each ship/group within this group
         ArrayList<Groupable> copyOfShips = ships.stream().map(Groupable::duplicate).collect(Collectors.toCollection(ArrayList::new));
         copyOfGroup.setShips(copyOfShips);
-        copyOfGroup.recalculateBounds();
         return copyOfGroup;
     }
 
@@ -166,9 +247,16 @@ public class ShipGroup implements Groupable {
      * Helper method to calculate bounding box coordinates based on children's coordinates.
      */
     private void recalculateBounds() {
-        left = ships.stream().mapToDouble(Groupable::getLeft).min().getAsDouble();
-        right = ships.stream().mapToDouble(Groupable::getRight).max().getAsDouble();
-        top = ships.stream().mapToDouble(Groupable::getTop).min().getAsDouble();
-        bottom = ships.stream().mapToDouble(Groupable::getBottom).max().getAsDouble();
+        if (ships.isEmpty()) return;
+        left = Double.POSITIVE_INFINITY;
+        top = Double.POSITIVE_INFINITY;
+        right = Double.NEGATIVE_INFINITY;
+        bottom = Double.NEGATIVE_INFINITY;
+        for (Groupable s : ships) {
+            left = Math.min(left, s.getLeft());
+            top = Math.min(top, s.getTop());
+            right = Math.max(right, s.getRight());
+            bottom = Math.max(bottom, s.getBottom());
+        }
     }
 }
@@ -0,0 +1,163 @@
+package com.example.ships_application;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * Class to collect performance metrics of the application: draw time and ships drawn per frame, hit-test time,
+ * notifications per input and allocation per frame. One instance is shared by the MVC components. Timing is only done
+ * while the metrics are enabled; the counters are plain increments, so a disabled instance costs next to nothing.
+ * The same measurements are also published as JFR events, see FrameEvent and HitTestEvent. Subscribers are notified
+ * when the metrics are turned on or off.
+ */
+public class ShipMetrics {
+    /*
+        Instance variables to store whether metrics are collected and the measurements of the last frame, hit test
+        and input.
+     */
+    boolean enabled;
+    long frameStart, lastDrawNanos, lastHitTestNanos;
+    int shipsDrawn, lastShipsDrawn;
+    int notifications, lastNotifications;
+    long allocatedAtFrameStart, lastFrameAllocation;
+    com.sun.management.ThreadMXBean threads;
+    ArrayList<ShipModelSubscriber> subscribers;
+
+    /**
+     * Default constructor for this class. Metrics are disabled until setEnabled is called.
+     */
+    public ShipMetrics() {
+        subscribers = new ArrayList<>();
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            threads = bean;
+        }
+    }
+
+    /**
+     * Method to check if metrics are collected.
+     *
+     * @return : true if enabled else false
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Method to turn collecting of metrics on or off.
+     *
+     * @param enabled : true to collect metrics
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled && threads != null) threads.setThreadAllocatedMemoryEnabled(true);
+        allocatedAtFrameStart = 0;
+        subscribers.forEach(ShipModelSubscriber::modelChanged);
+    }
+
+    /**
+     * Method to add a subscriber to be notified when the metrics are turned on or off.
+     *
+     * @param aSub : new subscriber
+     */
+    public void addSubscriber(ShipModelSubscriber aSub) {
+        subscribers.add(aSub);
+    }
+
+    /**
+     * Method to mark the start of a new input, which resets the count of notifications.
+     */
+    public void beginInput() {
+        notifications = 0;
+    }
+
+    /**
+     * Method to count a notification sent by the model or iModel.
+     */
+    public void countNotification() {
+        notifications++;
+    }
+
+    /**
+     * Method to count a ship drawn by the view.
+     */
+    public void countShipDrawn() {
+        shipsDrawn++;
+    }
+
+    /**
+     * Method to record how long a hit test took.
+     *
+     * @param nanos : duration in nanoseconds
+     */
+    public void recordHitTest(long nanos) {
+        lastHitTestNanos = nanos;
+    }
+
+    /**
+     * Method to mark the start of a frame.
+     */
+    public void beginFrame() {
+        shipsDrawn = 0;
+        if (!enabled) return;
+        frameStart = System.nanoTime();
+        if (threads != null) {
+            long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            lastFrameAllocation = allocatedAtFrameStart == 0 ? 0 : allocated - allocatedAtFrameStart;
+            allocatedAtFrameStart = allocated;
+        }
+    }
+
+    /**
+     * Method to mark the end of a frame.
+     */
+    public void endFrame() {
+        lastShipsDrawn = shipsDrawn;
+        lastNotifications = notifications;
+        if (enabled) lastDrawNanos = System.nanoTime() - frameStart;
+    }
+
+    /**
+     * Method to describe the last measurements as lines of text for the metrics overlay.
+     *
+     * @param selectionSize : number of selected ships/groups
+     * @return : lines of text
+     */
+    public String[] describe(int selectionSize) {
+        return new String[]{
+                String.format("draw: %.2f ms", lastDrawNanos / 1e6),
+                "ships drawn: " + lastShipsDrawn,
+                String.format("hit test: %.3f ms", lastHitTestNanos / 1e6),
+                "selection: " + selectionSize,
+                "notifications/input: " + lastNotifications,
+                String.format("allocated/frame: %.1f KB", lastFrameAllocation / 1024.0)
+        };
+    }
+
+    /**
+     * Method to get the bytes allocated by the FX thread between the starts of the last two frames.
+     *
+     * @return : allocated bytes, or 0 if not measured
+     */
+    public long getLastFrameAllocation() {
+        return lastFrameAllocation;
+    }
+
+    /**
+     * Method to get how many notifications were sent since the start of the last input.
+     *
+     * @return : number of notifications
+     */
+    public int getNotifications() {
+        return notifications;
+    }
+
+    /**
+     * Method to get how many ships were drawn in the last frame.
+     *
+     * @return : number of ships
+     */
+    public int getLastShipsDrawn() {
+        return lastShipsDrawn;
+    }
+}
@@ -1,26 +1,63 @@
 package com.example.ships_application;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
- * Model for this MVC Architecture. Stores a list of ships/group of ships.
+ * Model for this MVC Architecture. Stores a list of ships/group of ships. The data of every ship in the model is kept
+ * in a columnar ShipStore, ships leaving the model are moved out into a store of their own.
  */
 public class ShipModel {
     /*
-        Instance variables to store the ships and subscribers of the model.
+        Instance variables to store the ships and subscribers of the model. The spatial index mirrors the list of
+        ships and has to be kept up to date by every method that changes the list or moves a ship. Rubber-band
+        selections over more candidates than the threshold are checked in parallel.
      */
     public ArrayList<Groupable> ships;
     ArrayList<ShipModelSubscriber> subscribers;
-    ArrayList<Groupable> tempCollection;
+    SpatialGrid index;
+    ShipStore store;
+    int parallelThreshold;
+    // collects hit-test time and notification counts, disabled unless shared with an enabled instance
+    ShipMetrics metrics;
+
+    // default number of candidates above which a rubber-band selection is checked in parallel
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
 
     /**
      * Default constructor of this class.
      */
     public ShipModel() {
+        this(new ShipStore());
+    }
+
+    /**
+     * Constructor to create a model that keeps its ships in the given store, e.g. one sized for a large scene.
+     *
+     * @param store : store for the ships of the model
+     */
+    public ShipModel(ShipStore store) {
+        this.store = store;
         subscribers = new ArrayList<>();
         ships = new ArrayList<>();
-        tempCollection = new ArrayList<>();
+        index = new SpatialGrid();
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        metrics = new ShipMetrics();
+    }
+
+    /**
+     * Method to set the metrics the model reports hit tests and notifications to.
+     *
+     * @param metrics : shared metrics of the application
+     */
+    public void setMetrics(ShipMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
@@ -31,12 +68,24 @@ public class ShipModel {
      * @return : newly created ship object
      */
     public Ship createShip(double x, double y) {
-        Ship s = new Ship(x, y);
+        Ship s = new Ship(store, ShipShape.DEFAULT, x, y);
         ships.add(s);
-        notifySubscribers();
+        index.insert(s);
+        ArrayList<Groupable> added = new ArrayList<>();
+        added.add(s);
+        notifySubscribers(ShipModelEvent.added(added));
         return s;
     }
 
+    /**
+     * Method to get the store the data of the ships in the model is kept in.
+     *
+     * @return : store of the model
+     */
+    public ShipStore getStore() {
+        return store;
+    }
+
     /**
      * Method to get the list of ships stored within the model.
      *
@@ -47,14 +96,52 @@ public class ShipModel {
     }
 
     /**
-     * Method to check if a point was on a ship.
+     * Method to check if a ship/group is a top-level item of the model, i.e. neither removed nor part of a group.
+     *
+     * @param item : ship/group to check
+     * @return : true if it is top-level else false
+     */
+    public boolean isTopLevel(Groupable item) {
+        return index.contains(item);
+    }
+
+    /**
+     * Method to check if a point was on a ship. Only the ships registered under the point in the spatial index are
+     * checked, and the topmost one is returned. Every hit test is timed as a JFR event and, when enabled, in the
+     * metrics.
      *
      * @param x : x coordinate of the mouse click
      * @param y : y coordinate of the mouse click
      * @return : If the point was within a ship then return the shape else not.
      */
     public Optional<Groupable> detectHit(double x, double y) {
-        return ships.stream().filter(s -> s.contains(x, y)).reduce((first, second) -> second);
+        HitTestEvent event = new HitTestEvent();
+        event.begin();
+        long start = metrics.enabled ? System.nanoTime() : 0;
+        Optional<Groupable> hit = index.topmostAt(x, y);
+        if (metrics.enabled) metrics.recordHitTest(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.x = x;
+            event.y = y;
+            event.hit = hit.isPresent();
+            event.ships = ships.size();
+            event.commit();
+        }
+        return hit;
+    }
+
+    /**
+     * Method to get the ships/groups whose bounding box intersects a region, in the order they are drawn.
+     *
+     * @param x1 : left x coordinate of the region
+     * @param y1 : top y coordinate of the region
+     * @param x2 : right x coordinate of the region
+     * @param y2 : bottom y coordinate of the region
+     * @return : list of ships/groups in the region
+     */
+    public ArrayList<Groupable> getShipsInRegion(double x1, double y1, double x2, double y2) {
+        return index.query(x1, y1, x2, y2);
     }
 
     /**
@@ -65,8 +152,43 @@ public class ShipModel {
      * @param dY    : Distance to move y coordinate by
      */
     public void move(ArrayList<Groupable> ships, double dX, double dY) {
-        ships.forEach(s -> s.move(dX, dY));
-        notifySubscribers();
+        ships.forEach(s -> {
+            s.move(dX, dY);
+            index.update(s);
+        });
+        notifySubscribers(ShipModelEvent.moved(ships, dX, dY));
+    }
+
+    /**
+     * Method to rotate ships and group of ships around a pivot.
+     *
+     * @param ships  : List of ships to be rotated
+     * @param angle  : Angle to rotate by, in radians
+     * @param pivotX : x coordinate of the point to rotate around
+     * @param pivotY : y coordinate of the point to rotate around
+     */
+    public void rotate(ArrayList<Groupable> ships, double angle, double pivotX, double pivotY) {
+        ships.forEach(s -> {
+            s.rotate(angle, pivotX, pivotY);
+            index.update(s);
+        });
+        notifySubscribers(ShipModelEvent.rotated(ships, angle, pivotX, pivotY));
+    }
+
+    /**
+     * Method to move each ship/group by its own distance, with a single notification for all of them.
+     *
+     * @param ships : List of ships to be moved
+     * @param dXs   : Distance to move each x coordinate by, in the same order
+     * @param dYs   : Distance to move each y coordinate by, in the same order
+     */
+    public void reposition(ArrayList<Groupable> ships, double[] dXs, double[] dYs) {
+        for (int i = 0; i < ships.size(); i++) {
+            Groupable s = ships.get(i);
+            s.move(dXs[i], dYs[i]);
+            index.update(s);
+        }
+        notifySubscribers(ShipModelEvent.repositioned(ships, dXs, dYs));
     }
 
     /**
@@ -80,16 +202,21 @@ public class ShipModel {
 
     /**
      * Method to notify all the subscribers of model changes.
+     *
+     * @param event : change that happened
      */
-    private void notifySubscribers() {
-        subscribers.forEach(ShipModelSubscriber::modelChanged);
+    private void notifySubscribers(ShipModelEvent event) {
+        metrics.countNotification();
+        subscribers.forEach(sub -> sub.modelChanged(event));
     }
 
     /**
-     * Method to return all ships that are within the given rectangle for rubber-band selection.
+     * Method to return all ships that are within the given rectangle for rubber-band selection. Only ships/groups
+     * overlapping the rectangle in the spatial index are checked, in parallel when there are more of them than the
+     * parallel threshold.
      *
      * @param rubberBand : rectangle to check against
-     * @return : list of ships that are within the rectangle
+     * @return : new list of ships that are within the rectangle, in z-order
      */
     public ArrayList<Groupable> detectRubberBandHit(RubberBandRectangle rubberBand) {
         // calculate x, y coordinate of the rectangle (left and right)
@@ -98,16 +225,79 @@ public class ShipModel {
         y1 = rubberBand.top;
         x2 = x1 + rubberBand.width;
         y2 = y1 + rubberBand.height;
-        // add every ship that is within the rectangle
-        ships.stream().filter(s -> s.isContained(x1, y1, x2, y2)).forEach(s -> tempCollection.add(s));
-        return tempCollection;
+        ArrayList<Groupable> candidates = index.query(x1, y1, x2, y2);
+        if (candidates.size() <= parallelThreshold) {
+            // add every ship that is within the rectangle
+            return RubberBandTask.collect(candidates, 0, candidates.size(), x1, y1, x2, y2);
+        }
+        return ForkJoinPool.commonPool().invoke(new RubberBandTask(candidates, 0, candidates.size(),
+                x1, y1, x2, y2, Math.max(1, parallelThreshold / 4)));
+    }
+
+    /**
+     * Method to set how many candidates a rubber-band selection needs before it is checked in parallel.
+     *
+     * @param parallelThreshold : number of candidates
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
     }
 
     /**
-     * Method to clear the temporary collection used for holding the selected shapes when checking for rubber-band hit.
+     * Task to check a range of candidates against a rubber-band rectangle. Ranges larger than the split size are
+     * split in two halves that are checked in parallel, and the results are joined in order.
      */
-    public void clearSelection() {
-        tempCollection = new ArrayList<>();
+    @SuppressWarnings("serial")
+    static class RubberBandTask extends RecursiveTask<ArrayList<Groupable>> {
+        final ArrayList<Groupable> candidates;
+        final int from, to, splitSize;
+        final double x1, y1, x2, y2;
+
+        RubberBandTask(ArrayList<Groupable> candidates, int from, int to, double x1, double y1, double x2, double y2,
+                       int splitSize) {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+            this.splitSize = splitSize;
+        }
+
+        @Override
+        protected ArrayList<Groupable> compute() {
+            if (to - from <= splitSize) return collect(candidates, from, to, x1, y1, x2, y2);
+            int mid = (from + to) >>> 1;
+            RubberBandTask low = new RubberBandTask(candidates, from, mid, x1, y1, x2, y2, splitSize);
+            RubberBandTask high = new RubberBandTask(candidates, mid, to, x1, y1, x2, y2, splitSize);
+            high.fork();
+            ArrayList<Groupable> result = low.compute();
+            result.addAll(high.join());
+            return result;
+        }
+
+        /**
+         * Method to collect the candidates of a range that are within the rectangle.
+         *
+         * @param candidates : ships/groups to check
+         * @param from       : first index of the range
+         * @param to         : index after the last one of the range
+         * @param x1         : left x coordinate of the rectangle
+         * @param y1         : top y coordinate of the rectangle
+         * @param x2         : right x coordinate of the rectangle
+         * @param y2         : bottom y coordinate of the rectangle
+         * @return : new list of the candidates within the rectangle
+         */
+        static ArrayList<Groupable> collect(ArrayList<Groupable> candidates, int from, int to,
+                                            double x1, double y1, double x2, double y2) {
+            ArrayList<Groupable> result = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                Groupable s = candidates.get(i);
+                if (s.isContained(x1, y1, x2, y2)) result.add(s);
+            }
+            return result;
+        }
     }
 
     /**
@@ -120,13 +310,33 @@ public class ShipModel {
         ShipGroup group = new ShipGroup();
         selectedShips.forEach(s -> {
             group.addChild(s);
-            ships.remove(s);
+            index.remove(s);
         });
+        removeAll(selectedShips);
         ships.add(group);
-        notifySubscribers();
+        index.insert(group);
+        notifySubscribers(ShipModelEvent.groupCreated(group));
         return group;
     }
 
+    /**
+     * Method to turn the items of a group that was ungrouped back into that same group, e.g. to undo the ungrouping.
+     *
+     * @param group : group that was ungrouped, its children are top-level items of the model
+     */
+    public void regroup(Groupable group) {
+        ArrayList<Groupable> children = group.getChildren();
+        children.forEach(child -> {
+            child.setParent((ShipGroup) group);
+            index.remove(child);
+        });
+        removeAll(children);
+        ((ShipGroup) group).invalidateBounds();
+        ships.add(group);
+        index.insert(group);
+        notifySubscribers(ShipModelEvent.groupCreated(group));
+    }
+
     /**
      * Method to ungroup a group and add its items individually to the model.
      *
@@ -136,10 +346,14 @@ public class ShipModel {
     public ArrayList<Groupable> ungroup(Groupable group) {
         ArrayList<Groupable> individualItems = new ArrayList<>();
         ships.remove(group);
+        index.remove(group);
         group.getChildren().forEach(ship -> {
+            ship.setParent(null);
             ships.add(ship);
+            index.insert(ship);
             individualItems.add(ship);
         });
+        notifySubscribers(ShipModelEvent.groupDissolved(group, individualItems));
         return individualItems;
     }
 
@@ -149,8 +363,10 @@ public class ShipModel {
      * @param list : list of ships/groups to be added
      */
     public void add(ArrayList<Groupable> list) {
+        list.forEach(item -> transfer(item, store));
         ships.addAll(list);
-        notifySubscribers();
+        list.forEach(index::insert);
+        notifySubscribers(ShipModelEvent.added(list));
     }
 
     /**
@@ -159,7 +375,49 @@ public class ShipModel {
      * @param list : list of ships/groups to be removed
      */
     public void remove(ArrayList<Groupable> list) {
-        ships.removeAll(list);
-        notifySubscribers();
+        removeAll(list);
+        list.forEach(index::remove);
+        // removed ships share one store so that their slots in the model's store can be reused
+        ShipStore removedStore = new ShipStore(countShips(list));
+        list.forEach(item -> transfer(item, removedStore));
+        notifySubscribers(ShipModelEvent.removed(list));
+    }
+
+    /**
+     * Helper method to remove several ships/groups from the list of ships in a single pass.
+     *
+     * @param list : ships/groups to be removed
+     */
+    private void removeAll(ArrayList<Groupable> list) {
+        // ships/groups do not override equals, so an identity set gives the same result as ArrayList.removeAll
+        Set<Groupable> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(list);
+        ships.removeIf(toRemove::contains);
+    }
+
+    /**
+     * Helper method to count the ships in a list of ships/groups, including the ships inside groups.
+     *
+     * @param list : ships/groups to count
+     * @return : number of ships
+     */
+    private static int countShips(List<Groupable> list) {
+        int count = 0;
+        for (Groupable item : list) count += item.hasChildren() ? countShips(item.getChildren()) : 1;
+        return count;
+    }
+
+    /**
+     * Helper method to move every ship of a ship/group into a store.
+     *
+     * @param item   : ship/group to be moved
+     * @param target : store to move the ships to
+     */
+    private static void transfer(Groupable item, ShipStore target) {
+        if (item.hasChildren()) {
+            item.getChildren().forEach(child -> transfer(child, target));
+        } else {
+            ((Ship) item).transferTo(target);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,295 @@
+package com.example.ships_application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to describe a change in the model or iModel, so that subscribers can update only what was affected instead of
+ * assuming everything changed. The list of affected ships/groups must not be modified by subscribers.
+ */
+public class ShipModelEvent {
+    /*
+        Kinds of changes that are published.
+     */
+    public enum Type {
+        SHIPS_ADDED, SHIPS_REMOVED, SHIPS_MOVED, GROUP_CREATED, GROUP_DISSOLVED, SELECTION_CHANGED, RUBBER_BAND_CHANGED,
+        VIEWPORT_CHANGED, SHIPS_REPOSITIONED, CONTACTS_CHANGED, SHIPS_ROTATED
+    }
+
+    /*
+        Instance variables to store the kind of change, the affected ships/groups, the group that was created or
+        dissolved, the distance ships were moved by, either one for all of them or one for each of them, and the angle
+        and pivot ships were rotated by.
+     */
+    final Type type;
+    final List<Groupable> affected;
+    final Groupable group;
+    final double dX, dY;
+    final double[] dXs, dYs;
+    final double angle, pivotX, pivotY;
+
+    /**
+     * Constructor of this class. Use the factory methods to create events.
+     *
+     * @param type     : kind of change
+     * @param affected : ships/groups affected by the change
+     * @param group    : group created or dissolved, or null
+     * @param dX       : distance moved on x coordinate
+     * @param dY       : distance moved on y coordinate
+     */
+    private ShipModelEvent(Type type, List<Groupable> affected, Groupable group, double dX, double dY) {
+        this(type, affected, group, dX, dY, null, null);
+    }
+
+    /**
+     * Constructor of this class for events with a distance for each affected ship/group.
+     *
+     * @param type     : kind of change
+     * @param affected : ships/groups affected by the change
+     * @param group    : group created or dissolved, or null
+     * @param dX       : distance moved on x coordinate
+     * @param dY       : distance moved on y coordinate
+     * @param dXs      : distance each ship/group moved on x coordinate, or null
+     * @param dYs      : distance each ship/group moved on y coordinate, or null
+     */
+    private ShipModelEvent(Type type, List<Groupable> affected, Groupable group, double dX, double dY,
+                           double[] dXs, double[] dYs) {
+        this(type, affected, 0, 0, 0, group, dX, dY, dXs, dYs);
+    }
+
+    /**
+     * Constructor of this class with every detail of a change.
+     *
+     * @param type     : kind of change
+     * @param affected : ships/groups affected by the change
+     * @param angle    : angle rotated by
+     * @param pivotX   : x coordinate of the point rotated around
+     * @param pivotY   : y coordinate of the point rotated around
+     * @param group    : group created or dissolved, or null
+     * @param dX       : distance moved on x coordinate
+     * @param dY       : distance moved on y coordinate
+     * @param dXs      : distance each ship/group moved on x coordinate, or null
+     * @param dYs      : distance each ship/group moved on y coordinate, or null
+     */
+    private ShipModelEvent(Type type, List<Groupable> affected, double angle, double pivotX, double pivotY,
+                           Groupable group, double dX, double dY, double[] dXs, double[] dYs) {
+        this.type = type;
+        this.affected = affected;
+        this.angle = angle;
+        this.pivotX = pivotX;
+        this.pivotY = pivotY;
+        this.group = group;
+        this.dX = dX;
+        this.dY = dY;
+        this.dXs = dXs;
+        this.dYs = dYs;
+    }
+
+    /**
+     * Method to create an event for ships/groups added to the model.
+     *
+     * @param added : ships/groups that were added
+     * @return : new event
+     */
+    public static ShipModelEvent added(List<Groupable> added) {
+        return new ShipModelEvent(Type.SHIPS_ADDED, added, null, 0, 0);
+    }
+
+    /**
+     * Method to create an event for ships/groups removed from the model.
+     *
+     * @param removed : ships/groups that were removed
+     * @return : new event
+     */
+    public static ShipModelEvent removed(List<Groupable> removed) {
+        return new ShipModelEvent(Type.SHIPS_REMOVED, removed, null, 0, 0);
+    }
+
+    /**
+     * Method to create an event for ships/groups that were all moved by the same distance.
+     *
+     * @param moved : ships/groups that were moved
+     * @param dX    : distance moved on x coordinate
+     * @param dY    : distance moved on y coordinate
+     * @return : new event
+     */
+    public static ShipModelEvent moved(List<Groupable> moved, double dX, double dY) {
+        return new ShipModelEvent(Type.SHIPS_MOVED, moved, null, dX, dY);
+    }
+
+    /**
+     * Method to create an event for ships/groups that were each moved by their own distance.
+     *
+     * @param repositioned : ships/groups that were moved
+     * @param dXs          : distance each ship/group moved on x coordinate, in the same order
+     * @param dYs          : distance each ship/group moved on y coordinate, in the same order
+     * @return : new event
+     */
+    public static ShipModelEvent repositioned(List<Groupable> repositioned, double[] dXs, double[] dYs) {
+        return new ShipModelEvent(Type.SHIPS_REPOSITIONED, repositioned, null, 0, 0, dXs, dYs);
+    }
+
+    /**
+     * Method to create an event for ships/groups that were all rotated by the same angle around the same point.
+     *
+     * @param rotated : ships/groups that were rotated
+     * @param angle   : angle rotated by, in radians
+     * @param pivotX  : x coordinate of the point rotated around
+     * @param pivotY  : y coordinate of the point rotated around
+     * @return : new event
+     */
+    public static ShipModelEvent rotated(List<Groupable> rotated, double angle, double pivotX, double pivotY) {
+        return new ShipModelEvent(Type.SHIPS_ROTATED, rotated, angle, pivotX, pivotY, null, 0, 0, null, null);
+    }
+
+    /**
+     * Method to create an event for a new group. The children were replaced by the group in the model.
+     *
+     * @param group : new group
+     * @return : new event
+     */
+    public static ShipModelEvent groupCreated(Groupable group) {
+        return new ShipModelEvent(Type.GROUP_CREATED, group.getChildren(), group, 0, 0);
+    }
+
+    /**
+     * Method to create an event for a dissolved group. The group was replaced by its children in the model.
+     *
+     * @param group    : dissolved group
+     * @param children : children that were added back to the model
+     * @return : new event
+     */
+    public static ShipModelEvent groupDissolved(Groupable group, List<Groupable> children) {
+        return new ShipModelEvent(Type.GROUP_DISSOLVED, children, group, 0, 0);
+    }
+
+    /**
+     * Method to create an event for a change of selection.
+     *
+     * @param changed : ships/groups that may have been selected or deselected
+     * @return : new event
+     */
+    public static ShipModelEvent selectionChanged(List<Groupable> changed) {
+        return new ShipModelEvent(Type.SELECTION_CHANGED, changed, null, 0, 0);
+    }
+
+    /**
+     * Method to create an event for a change of the rubber-band rectangle.
+     *
+     * @return : new event
+     */
+    public static ShipModelEvent rubberBandChanged() {
+        return new ShipModelEvent(Type.RUBBER_BAND_CHANGED, new ArrayList<>(), null, 0, 0);
+    }
+
+    /**
+     * Method to create an event for ships that started or stopped overlapping other ships.
+     *
+     * @param changed : ships whose contacts changed
+     * @return : new event
+     */
+    public static ShipModelEvent contactsChanged(List<Groupable> changed) {
+        return new ShipModelEvent(Type.CONTACTS_CHANGED, changed, null, 0, 0);
+    }
+
+    /**
+     * Method to create an event for the camera being panned or zoomed.
+     *
+     * @return : new event
+     */
+    public static ShipModelEvent viewportChanged() {
+        return new ShipModelEvent(Type.VIEWPORT_CHANGED, new ArrayList<>(), null, 0, 0);
+    }
+
+    /**
+     * Method to get the kind of change.
+     *
+     * @return : kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Method to get the ships/groups affected by the change. For group events these are the children of the group.
+     *
+     * @return : affected ships/groups
+     */
+    public List<Groupable> getAffected() {
+        return affected;
+    }
+
+    /**
+     * Method to get the group that was created or dissolved.
+     *
+     * @return : group of a group event, else null
+     */
+    public Groupable getGroup() {
+        return group;
+    }
+
+    /**
+     * Method to get the distance ships were moved by on the x coordinate.
+     *
+     * @return : distance moved on x coordinate
+     */
+    public double getDX() {
+        return dX;
+    }
+
+    /**
+     * Method to get the distance ships were moved by on the y coordinate.
+     *
+     * @return : distance moved on y coordinate
+     */
+    public double getDY() {
+        return dY;
+    }
+
+    /**
+     * Method to get the distance each ship/group was moved by on the x coordinate. Must not be modified by
+     * subscribers.
+     *
+     * @return : distances in the order of the affected ships/groups, or null if they all moved by getDX
+     */
+    public double[] getDXs() {
+        return dXs;
+    }
+
+    /**
+     * Method to get the distance each ship/group was moved by on the y coordinate. Must not be modified by
+     * subscribers.
+     *
+     * @return : distances in the order of the affected ships/groups, or null if they all moved by getDY
+     */
+    public double[] getDYs() {
+        return dYs;
+    }
+
+    /**
+     * Method to get the angle ships were rotated by.
+     *
+     * @return : angle in radians
+     */
+    public double getAngle() {
+        return angle;
+    }
+
+    /**
+     * Method to get the x coordinate of the point ships were rotated around.
+     *
+     * @return : x coordinate of the pivot
+     */
+    public double getPivotX() {
+        return pivotX;
+    }
+
+    /**
+     * Method to get the y coordinate of the point ships were rotated around.
+     *
+     * @return : y coordinate of the pivot
+     */
+    public double getPivotY() {
+        return pivotY;
+    }
+}
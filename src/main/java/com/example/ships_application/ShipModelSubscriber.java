@@ -8,4 +8,14 @@ public interface ShipModelSubscriber {
      * Method to be run when model has changed.
      */
     void modelChanged();
+
+    /**
+     * Method to be run when model has changed, with a description of what changed. Subscribers that can update
+     * incrementally override this method, by default it falls back to modelChanged.
+     *
+     * @param event : change that happened
+     */
+    default void modelChanged(ShipModelEvent event) {
+        modelChanged();
+    }
 }
@@ -0,0 +1,153 @@
+package com.example.ships_application;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Class to represent the outline of a kind of ship. Shapes are shared between every ship of the same kind and are kept
+ * in a registry, so a ship only stores the id of its shape and its position. The outline is given in template
+ * coordinates, i.e. relative to the translation point of the ship.
+ */
+public class ShipShape {
+    /*
+        Registry of all known shapes, by name and by id. The array by id is replaced on every registration so that it
+        can be read without locking on every hit test.
+     */
+    private static final HashMap<String, ShipShape> registry = new HashMap<>();
+    private static volatile ShipShape[] shapesById = new ShipShape[0];
+
+    // Shape used by ships that are created without specifying one
+    public static final ShipShape DEFAULT = register("default",
+            new double[]{0, 20, 0, -20, 0},
+            new double[]{24, -20, -12, -20, 24});
+
+    /*
+        Instance variables to store the outline of the shape and its bounding box in template coordinates.
+     */
+    final int id;
+    final String name;
+    final double[] xs, ys;
+    final double minX, minY, maxX, maxY;
+
+    /**
+     * Constructor of this class. Use register to create new shapes.
+     *
+     * @param id   : id of the shape in the registry
+     * @param name : name of the shape
+     * @param xs   : x coordinates of the outline
+     * @param ys   : y coordinates of the outline
+     */
+    private ShipShape(int id, String name, double[] xs, double[] ys) {
+        this.id = id;
+        this.name = name;
+        this.xs = xs;
+        this.ys = ys;
+        double x1 = Double.POSITIVE_INFINITY, y1 = Double.POSITIVE_INFINITY;
+        double x2 = Double.NEGATIVE_INFINITY, y2 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            x1 = Math.min(x1, xs[i]);
+            x2 = Math.max(x2, xs[i]);
+            y1 = Math.min(y1, ys[i]);
+            y2 = Math.max(y2, ys[i]);
+        }
+        minX = x1;
+        minY = y1;
+        maxX = x2;
+        maxY = y2;
+    }
+
+    /**
+     * Method to register a new shape. If a shape with the same name already exists, that shape is returned instead.
+     *
+     * @param name : name of the shape
+     * @param xs   : x coordinates of the outline
+     * @param ys   : y coordinates of the outline
+     * @return : registered shape
+     */
+    public static synchronized ShipShape register(String name, double[] xs, double[] ys) {
+        if (xs.length != ys.length || xs.length < 3) {
+            throw new IllegalArgumentException("A ship shape needs at least 3 points");
+        }
+        return registry.computeIfAbsent(name, n -> {
+            ShipShape shape = new ShipShape(shapesById.length, n, xs.clone(), ys.clone());
+            ShipShape[] shapes = Arrays.copyOf(shapesById, shapesById.length + 1);
+            shapes[shape.id] = shape;
+            shapesById = shapes;
+            return shape;
+        });
+    }
+
+    /**
+     * Method to get a registered shape by name.
+     *
+     * @param name : name of the shape
+     * @return : shape with the given name, or null if there is none
+     */
+    public static synchronized ShipShape get(String name) {
+        return registry.get(name);
+    }
+
+    /**
+     * Method to get a registered shape by id.
+     *
+     * @param id : id of the shape
+     * @return : shape with the given id
+     */
+    public static ShipShape byId(int id) {
+        return shapesById[id];
+    }
+
+    /**
+     * Method to get how many shapes are registered. Ids run from 0 to one less than this.
+     *
+     * @return : number of registered shapes
+     */
+    public static int count() {
+        return shapesById.length;
+    }
+
+    /**
+     * Method to check if a point in template coordinates is inside the outline, using an even-odd crossing test.
+     *
+     * @param x : x coordinate relative to the translation point of the ship
+     * @param y : y coordinate relative to the translation point of the ship
+     * @return : true if the point is inside the outline else false
+     */
+    public boolean contains(double x, double y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) return false;
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((ys[i] > y) != (ys[j] > y) && x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Method to get the id of the shape.
+     *
+     * @return : id of the shape in the registry
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Method to get the name of the shape.
+     *
+     * @return : name of the shape
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Method to get how many points make up the outline.
+     *
+     * @return : number of points
+     */
+    public int vertexCount() {
+        return xs.length;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.ships_application;
+
+import java.util.Arrays;
+
+/**
+ * Class to store the data of many ships in primitive columns instead of in one object per ship. A Ship is a handle to
+ * a slot of a store. The model keeps all of its ships in one store, so scanning them walks a few contiguous arrays
+ * rather than an object graph. Slots of ships that leave the store are reused for new ships. The rotation of every
+ * ship is kept with its cosine and sine, so drawing and hit testing never call trigonometric functions.
+ */
+public class ShipStore {
+    // capacity of a store created without one
+    public static final int DEFAULT_CAPACITY = 1024;
+    // capacity of the stores shared by ships created outside of a model
+    static final int DETACHED_CAPACITY = 1024;
+    // store that ships created outside of a model are put in until it is full
+    private static ShipStore detached;
+
+    /*
+        Columns holding the translation, the rotation with its cosine and sine, the bounding box and the shape id of
+        the ship in each slot, and a stack of slots that were released and can be reused.
+     */
+    double[] translateX, translateY;
+    double[] angle, cos, sin;
+    double[] left, top, right, bottom;
+    int[] shapeId;
+    int[] freeSlots;
+    int freeCount;
+    int used;
+    // angle of the last rotation and its cosine and sine, which every ship of a rotated selection shares
+    double lastRotation, lastRotationCos = 1, lastRotationSin;
+
+    /**
+     * Default constructor for this class. Creates an empty store with the default capacity.
+     */
+    public ShipStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to create an empty store that holds the given number of ships before it has to grow.
+     *
+     * @param capacity : initial number of slots
+     */
+    public ShipStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        translateX = new double[capacity];
+        translateY = new double[capacity];
+        angle = new double[capacity];
+        cos = new double[capacity];
+        sin = new double[capacity];
+        left = new double[capacity];
+        top = new double[capacity];
+        right = new double[capacity];
+        bottom = new double[capacity];
+        shapeId = new int[capacity];
+        freeSlots = new int[0];
+    }
+
+    /**
+     * Method to get a store with a free slot for a ship created outside of a model. Such ships share stores of a fixed
+     * capacity instead of getting one each. A full store is left to the ships in it and freed together with them, and
+     * slots released by ships that join a model are reused.
+     *
+     * @return : store to put the ship in
+     */
+    static ShipStore detached() {
+        if (detached == null || (detached.freeCount == 0 && detached.used == detached.translateX.length)) {
+            detached = new ShipStore(DETACHED_CAPACITY);
+        }
+        return detached;
+    }
+
+    /**
+     * Method to allocate a slot for a ship of the given shape at the given coordinates.
+     *
+     * @param shape : shape of the ship
+     * @param x     : x coordinate of the ship
+     * @param y     : y coordinate of the ship
+     * @return : slot of the ship
+     */
+    public int allocate(ShipShape shape, double x, double y) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (used == translateX.length) grow();
+            slot = used++;
+        }
+        shapeId[slot] = shape.id;
+        translateX[slot] = x;
+        translateY[slot] = y;
+        angle[slot] = 0;
+        cos[slot] = 1;
+        sin[slot] = 0;
+        left[slot] = x + shape.minX;
+        right[slot] = x + shape.maxX;
+        top[slot] = y + shape.minY;
+        bottom[slot] = y + shape.maxY;
+        return slot;
+    }
+
+    /**
+     * Method to allocate a slot for a rotated ship of the given shape at the given coordinates.
+     *
+     * @param shape    : shape of the ship
+     * @param x        : x coordinate of the ship
+     * @param y        : y coordinate of the ship
+     * @param rotation : angle the shape is turned by around the translation point, in radians
+     * @return : slot of the ship
+     */
+    public int allocate(ShipShape shape, double x, double y, double rotation) {
+        int slot = allocate(shape, x, y);
+        if (rotation != 0) {
+            angle[slot] = rotation;
+            cos[slot] = Math.cos(rotation);
+            sin[slot] = Math.sin(rotation);
+            updateBounds(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Method to copy the ship in a slot of another store into a new slot of this store.
+     *
+     * @param from : store holding the ship
+     * @param slot : slot of the ship in that store
+     * @return : slot of the copy in this store
+     */
+    public int copyFrom(ShipStore from, int slot) {
+        int copy = allocate(ShipShape.byId(from.shapeId[slot]), from.translateX[slot], from.translateY[slot]);
+        if (from.angle[slot] != 0) {
+            angle[copy] = from.angle[slot];
+            cos[copy] = from.cos[slot];
+            sin[copy] = from.sin[slot];
+            updateBounds(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Method to release a slot so that it can be reused by another ship.
+     *
+     * @param slot : slot to release
+     */
+    public void release(int slot) {
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeCount * 2));
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Method to move the ship in a slot by a certain distance.
+     *
+     * @param slot : slot of the ship
+     * @param dX   : distance to move on x coordinate
+     * @param dY   : distance to move on y coordinate
+     */
+    public void move(int slot, double dX, double dY) {
+        translateX[slot] += dX;
+        translateY[slot] += dY;
+        left[slot] += dX;
+        right[slot] += dX;
+        top[slot] += dY;
+        bottom[slot] += dY;
+    }
+
+    /**
+     * Method to rotate the ship in a slot around a pivot. The cosine and sine of the angle are cached, so rotating a
+     * whole selection by the same angle computes them once, and the cosine and sine of the ship are updated with the
+     * angle addition formulas instead of being computed again.
+     *
+     * @param slot   : slot of the ship
+     * @param dAngle : angle to rotate by, in radians
+     * @param pivotX : x coordinate of the point to rotate around
+     * @param pivotY : y coordinate of the point to rotate around
+     */
+    public void rotate(int slot, double dAngle, double pivotX, double pivotY) {
+        if (dAngle != lastRotation) {
+            lastRotation = dAngle;
+            lastRotationCos = Math.cos(dAngle);
+            lastRotationSin = Math.sin(dAngle);
+        }
+        double c = lastRotationCos, s = lastRotationSin;
+        double x = translateX[slot] - pivotX, y = translateY[slot] - pivotY;
+        translateX[slot] = pivotX + x * c - y * s;
+        translateY[slot] = pivotY + x * s + y * c;
+        double turned = angle[slot] + dAngle;
+        // a drag turns by small steps, so the angle only needs wrapping when it passes half a turn
+        angle[slot] = turned > Math.PI || turned < -Math.PI ? Math.IEEEremainder(turned, 2 * Math.PI) : turned;
+        double newCos = cos[slot] * c - sin[slot] * s, newSin = sin[slot] * c + cos[slot] * s;
+        // keep the pair on the unit circle, rounding errors would otherwise add up over a long drag
+        double norm = 1.5 - 0.5 * (newCos * newCos + newSin * newSin);
+        cos[slot] = newCos * norm;
+        sin[slot] = newSin * norm;
+        updateBounds(slot);
+    }
+
+    /**
+     * Method to get how many ships are stored.
+     *
+     * @return : number of slots in use
+     */
+    public int size() {
+        return used - freeCount;
+    }
+
+    /**
+     * Method to get how many ships fit in the store before it has to grow.
+     *
+     * @return : number of slots
+     */
+    public int capacity() {
+        return translateX.length;
+    }
+
+    /**
+     * Helper method to set the bounding box of a rotated ship to the box around its turned outline.
+     *
+     * @param slot : slot of the ship
+     */
+    private void updateBounds(int slot) {
+        ShipShape shape = ShipShape.byId(shapeId[slot]);
+        double c = cos[slot], s = sin[slot], x = translateX[slot], y = translateY[slot];
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < shape.xs.length; i++) {
+            double px = shape.xs[i] * c - shape.ys[i] * s, py = shape.xs[i] * s + shape.ys[i] * c;
+            minX = Math.min(minX, px);
+            maxX = Math.max(maxX, px);
+            minY = Math.min(minY, py);
+            maxY = Math.max(maxY, py);
+        }
+        left[slot] = x + minX;
+        right[slot] = x + maxX;
+        top[slot] = y + minY;
+        bottom[slot] = y + maxY;
+    }
+
+    /**
+     * Helper method to double the size of every column.
+     */
+    private void grow() {
+        int capacity = translateX.length * 2;
+        translateX = Arrays.copyOf(translateX, capacity);
+        translateY = Arrays.copyOf(translateY, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        cos = Arrays.copyOf(cos, capacity);
+        sin = Arrays.copyOf(sin, capacity);
+        left = Arrays.copyOf(left, capacity);
+        top = Arrays.copyOf(top, capacity);
+        right = Arrays.copyOf(right, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+        shapeId = Arrays.copyOf(shapeId, capacity);
+    }
+}
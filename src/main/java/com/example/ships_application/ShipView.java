@@ -4,30 +4,107 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.util.Arrays;
 
 /**
- * View class for the MVC Architecture. Draws a canvas of 1000x700 size where ships are drawn. Can be subscribed for
- * model changes.
+ * View class for the MVC Architecture. Draws the part of the world seen through the camera of the iModel on canvases
+ * that fill the view, 1000x700 by default. Can be subscribed for model changes. Drawing is split in two layers:
+ * unselected ships are kept on a background canvas where only the damaged region is redrawn, and the selection, the
+ * rubber band and group outlines are drawn on an overlay canvas that is repainted on its own, so dragging the
+ * selection never touches the background. Only ships/groups that intersect the visible part of the world are drawn,
+ * and with less detail the smaller they are on screen: ships of a few pixels are only counted into density cells
+ * that are filled once per frame, small ships are filled without an outline, and groups smaller than a threshold are
+ * drawn as their bounding box. Ships are not submitted one by one: a pass collects the polygons that share a style
+ * into batches and fills/strokes each batch as one path, so colours are set once per batch instead of once per ship.
+ * Ships overlapping other ships are outlined in red while collision detection is on.
  */
 public class ShipView extends StackPane implements ShipModelSubscriber {
     /*
-        Instance variables to store canvas, graphic context and models from the MVC architecture.
+        Instance variables to store the canvases, their graphic contexts and models from the MVC architecture.
      */
-    Canvas myCanvas;
-    GraphicsContext gc;
+    Canvas backgroundCanvas, overlayCanvas;
+    GraphicsContext backgroundGc, overlayGc;
     ShipModel model;
     InteractionModel iModel;
-    // flag to draw all children of a selected group with yellow fill
-    boolean groupSelected;
+    // polygons of the current pass that are only filled, that are filled and outlined, that overlap other ships,
+    // and group outlines
+    ShipBatch filledBatch, outlinedBatch, collidingBatch, groupOutlineBatch;
+    // batch the last drawn ship/group went into, or null for the density cells
+    ShipBatch pending;
+    // contacts between ships that are highlighted, or null when not shown
+    CollisionDetector collisions;
+    // redraws the canvases at most once per pulse
+    RepaintScheduler scheduler;
+    // region of the background that needs to be redrawn, or the whole background
+    boolean damaged, fullyDamaged;
+    double damageLeft, damageTop, damageRight, damageBottom;
+    // flag to repaint the overlay
+    boolean overlayDirty;
+    // per-frame measurements, drawn in the corner of the overlay when enabled
+    ShipMetrics metrics;
+    // part of the world being drawn, ships/groups outside of it are skipped, and the camera it is drawn through
+    double viewLeft, viewTop, viewRight, viewBottom;
+    Camera viewCamera;
+    // number of tiny ships in each density cell of the screen, and the cells that have any
+    int[] density;
+    int densityColumns;
+    int[] densityCells;
+    int densityCellCount;
+
+    // extra space around damaged bounding boxes to cover strokes drawn on the edge of a box
+    static final double DAMAGE_PADDING = 2;
+    // rubber band is see-through so that the ships below it on the background stay visible
+    static final Color RUBBER_BAND_FILL = Color.rgb(184, 134, 37, 0.6);
+    // metrics panel
+    static final Color METRICS_BACKGROUND = Color.rgb(0, 0, 0, 0.7);
+    static final Font METRICS_FONT = Font.font("Monospaced", 12);
+    static final double METRICS_LINE_HEIGHT = 15;
+    /*
+        Level of detail: on-screen sizes in pixels below which a ship is drawn as a point or density cell, a ship is
+        drawn without an outline, and a group is drawn as its bounding box. Size of a density cell and how opaque a
+        cell gets per ship in it.
+     */
+    static final double POINT_PIXELS = 4;
+    static final double OUTLINE_PIXELS = 10;
+    static final double GROUP_BOX_PIXELS = 16;
+    static final int DENSITY_CELL_PIXELS = 2;
+    static final double DENSITY_BASE_ALPHA = 0.4;
+    static final double DENSITY_ALPHA_PER_SHIP = 0.15;
+    // outline of ships that overlap another ship
+    static final Color COLLISION_STROKE = Color.RED;
+    // points a batch may collect before the batches are drawn in the middle of a pass
+    static final int BATCH_POINTS = 1 << 16;
 
     /**
-     * Default constructor for this class. Sets up canvas with a black background.
+     * Default constructor for this class. Sets up the canvases with a black background.
      */
     public ShipView() {
-        myCanvas = new Canvas(1000, 700);
-        gc = myCanvas.getGraphicsContext2D();
-        this.getChildren().add(myCanvas);
+        backgroundCanvas = new Canvas();
+        overlayCanvas = new Canvas();
+        backgroundGc = backgroundCanvas.getGraphicsContext2D();
+        overlayGc = overlayCanvas.getGraphicsContext2D();
+        this.getChildren().addAll(backgroundCanvas, overlayCanvas);
         this.setStyle("-fx-background-color: black");
+        this.setPrefSize(1000, 700);
+        this.setMinSize(0, 0);
+        // canvases follow the size of the view and are left out of its layout, so they never hold it at a size
+        for (Canvas canvas : new Canvas[]{backgroundCanvas, overlayCanvas}) {
+            canvas.setManaged(false);
+            canvas.widthProperty().bind(widthProperty());
+            canvas.heightProperty().bind(heightProperty());
+        }
+        widthProperty().addListener((observable, oldWidth, newWidth) -> modelChanged());
+        heightProperty().addListener((observable, oldHeight, newHeight) -> modelChanged());
+        filledBatch = new ShipBatch();
+        outlinedBatch = new ShipBatch();
+        collidingBatch = new ShipBatch();
+        groupOutlineBatch = new ShipBatch();
+        density = new int[0];
+        densityCells = new int[256];
+        scheduler = new RepaintScheduler(this::drawDamage);
+        metrics = new ShipMetrics();
     }
 
     /**
@@ -49,85 +126,430 @@ public class ShipView extends StackPane implements ShipModelSubscriber {
     }
 
     /**
-     * Method to set up event handlers for the view via the controller.
+     * Method to store reference to the collision detector and subscribe to its contacts, which are highlighted while
+     * it is enabled.
+     *
+     * @param newCollisions : collision detector of the model
+     */
+    public void setCollisionDetector(CollisionDetector newCollisions) {
+        collisions = newCollisions;
+        collisions.addSubscriber(this);
+    }
+
+    /**
+     * Method to store reference to the metrics and subscribe to them being turned on or off.
+     *
+     * @param newMetrics : metrics shown by this view
+     */
+    public void setMetrics(ShipMetrics newMetrics) {
+        metrics = newMetrics;
+        metrics.addSubscriber(this);
+    }
+
+    /**
+     * Method to set up event handlers for the view via the controller. The overlay is the top canvas, so it receives
+     * the mouse events. The mouse wheel zooms.
      *
      * @param controller : controller to trigger events (does not store the reference)
      */
     public void setController(ShipController controller) {
-        myCanvas.setOnMousePressed(e -> controller.handlePressed(e.getX(), e.getY(), e));
-        myCanvas.setOnMouseDragged(e -> controller.handleDragged(e.getX(), e.getY(), e));
-        myCanvas.setOnMouseReleased(e -> controller.handleReleased(e.getX(), e.getY(), e));
+        overlayCanvas.setOnMousePressed(e -> controller.handlePressed(e.getX(), e.getY(), e));
+        overlayCanvas.setOnMouseDragged(e -> controller.handleDragged(e.getX(), e.getY(), e));
+        overlayCanvas.setOnMouseReleased(e -> controller.handleReleased(e.getX(), e.getY(), e));
+        overlayCanvas.setOnScroll(e -> controller.handleScroll(e.getX(), e.getY(), e));
     }
 
     /**
-     * Method to draw ships on the canvas.
+     * Method to draw ships on the whole of both canvases.
      */
     public void draw() {
-        gc.clearRect(0, 0, myCanvas.getWidth(), myCanvas.getHeight());
+        fullyDamaged = true;
+        overlayDirty = true;
+        drawDamage();
+    }
+
+    /**
+     * Method to redraw what changed since the last frame: the damaged region of the background and, if needed, the
+     * overlay. Every frame is recorded as a JFR event, and the overlay is repainted on every frame while the metrics
+     * are shown.
+     */
+    public void drawDamage() {
+        FrameEvent event = new FrameEvent();
+        event.begin();
+        metrics.beginFrame();
+        drawBackground();
+        if (overlayDirty || metrics.enabled) {
+            overlayDirty = false;
+            drawOverlay();
+        }
+        metrics.endFrame();
+        event.end();
+        if (event.shouldCommit()) {
+            event.shipsDrawn = metrics.getLastShipsDrawn();
+            event.selectionSize = iModel.selectionSize();
+            event.notifications = metrics.getNotifications();
+            event.allocatedBytes = metrics.getLastFrameAllocation();
+            event.commit();
+        }
+    }
+
+    /**
+     * Helper method to redraw the damaged region of the background. The damaged region is kept in world coordinates
+     * and converted to the screen, where it is cleared and clipped, and only the unselected ships/groups that
+     * intersect both it and the screen are drawn again.
+     */
+    private void drawBackground() {
+        Camera camera = iModel.getCamera();
+        double x1 = 0, y1 = 0, x2 = backgroundCanvas.getWidth(), y2 = backgroundCanvas.getHeight();
+        if (!fullyDamaged) {
+            if (!damaged) return;
+            x1 = Math.max(x1, camera.toScreenX(damageLeft) - DAMAGE_PADDING);
+            y1 = Math.max(y1, camera.toScreenY(damageTop) - DAMAGE_PADDING);
+            x2 = Math.min(x2, camera.toScreenX(damageRight) + DAMAGE_PADDING);
+            y2 = Math.min(y2, camera.toScreenY(damageBottom) + DAMAGE_PADDING);
+        }
+        damaged = false;
+        fullyDamaged = false;
+        if (x2 <= x1 || y2 <= y1) return;
+
+        backgroundGc.save();
+        backgroundGc.beginPath();
+        backgroundGc.rect(x1, y1, x2 - x1, y2 - y1);
+        backgroundGc.clip();
+        backgroundGc.clearRect(x1, y1, x2 - x1, y2 - y1);
+        setView(backgroundGc, camera, x1, y1, x2, y2);
+        // draw each unselected ship/group in the region, selected ones are on the overlay
+        resetDensity();
+        model.getShipsInRegion(viewLeft, viewTop, viewRight, viewBottom).forEach(item -> {
+            if (!iModel.isSelected(item)) drawItem(backgroundGc, item, false);
+        });
+        flushBatches(backgroundGc, false);
+        backgroundGc.restore();
+    }
+
+    /**
+     * Helper method to repaint the overlay with the rubber band and the selected ships/groups.
+     */
+    private void drawOverlay() {
+        double width = overlayCanvas.getWidth(), height = overlayCanvas.getHeight();
+        overlayGc.clearRect(0, 0, width, height);
+        overlayGc.save();
+        setView(overlayGc, iModel.getCamera(), 0, 0, width, height);
         // draw rubber band rectangle for selection
         RubberBandRectangle rb = iModel.getRubberBand();
         if (rb != null) {
-            gc.setFill(Color.rgb(184, 134, 37));
-            gc.strokeRect(rb.left, rb.top, rb.width, rb.height);
-            gc.fillRect(rb.left, rb.top, rb.width, rb.height);
-        }
-        // draw each ship/group in model
-        model.getShips().forEach(item -> {
-            groupSelected = false;
-            // draw individual ship
-            if (!item.hasChildren()) {
-                drawShip((Ship) item);
-            } else {
-                // draw group
-                drawGroup(item);
-            }
-        });
+            overlayGc.setFill(RUBBER_BAND_FILL);
+            overlayGc.strokeRect(rb.left, rb.top, rb.width, rb.height);
+            overlayGc.fillRect(rb.left, rb.top, rb.width, rb.height);
+        }
+        // draw each selected ship/group in the order they were selected
+        iModel.getSelectedShips().forEach(item -> drawItem(overlayGc, item, true));
+        flushBatches(overlayGc, true);
+        overlayGc.restore();
+        if (metrics.enabled) drawMetrics();
+    }
+
+    /**
+     * Helper method to make a graphics context draw in world coordinates through the camera, with strokes of one
+     * pixel at any zoom, and to store the part of the world covered by a region of the screen.
+     *
+     * @param gc     : graphics context to draw on
+     * @param camera : camera the world is viewed through
+     * @param x1     : left x coordinate of the region on screen
+     * @param y1     : top y coordinate of the region on screen
+     * @param x2     : right x coordinate of the region on screen
+     * @param y2     : bottom y coordinate of the region on screen
+     */
+    private void setView(GraphicsContext gc, Camera camera, double x1, double y1, double x2, double y2) {
+        double zoom = camera.getZoom();
+        gc.setTransform(zoom, 0, 0, zoom, -camera.getX() * zoom, -camera.getY() * zoom);
+        gc.setLineWidth(1 / zoom);
+        viewCamera = camera;
+        viewLeft = camera.toWorldX(x1);
+        viewTop = camera.toWorldY(y1);
+        viewRight = camera.toWorldX(x2);
+        viewBottom = camera.toWorldY(y2);
+    }
+
+    /**
+     * Helper method to draw the measurements of the previous frame in the top left corner of the overlay.
+     */
+    private void drawMetrics() {
+        String[] lines = metrics.describe(iModel.selectionSize());
+        overlayGc.setFill(METRICS_BACKGROUND);
+        overlayGc.fillRect(5, 5, 210, lines.length * METRICS_LINE_HEIGHT + 10);
+        overlayGc.setFill(Color.WHITE);
+        overlayGc.setFont(METRICS_FONT);
+        for (int i = 0; i < lines.length; i++) {
+            overlayGc.fillText(lines[i], 12, 22 + i * METRICS_LINE_HEIGHT);
+        }
+    }
+
+    /**
+     * Helper method to draw the collected batches and density cells and empty them. Only one of them holds ships at a
+     * time, as the style changing flushes them, so they keep the z-order. The outlines of selected groups are drawn
+     * last, on top of the ships, as a marker of the selection.
+     *
+     * @param gc       : graphics context to draw on
+     * @param selected : true if the batches hold selected ships/groups
+     */
+    private void flushBatches(GraphicsContext gc, boolean selected) {
+        flushShips(gc, selected);
+        groupOutlineBatch.flush(gc, null, Color.WHITE);
+    }
+
+    /**
+     * Helper method to draw the collected ships, boxes and density cells and empty them.
+     *
+     * @param gc       : graphics context to draw on
+     * @param selected : true if the batches hold selected ships/groups
+     */
+    private void flushShips(GraphicsContext gc, boolean selected) {
+        Color fill = selected ? Color.YELLOW : Color.CORAL, stroke = selected ? Color.CORAL : Color.YELLOW;
+        filledBatch.flush(gc, fill, null);
+        outlinedBatch.flush(gc, fill, stroke);
+        collidingBatch.flush(gc, fill, COLLISION_STROKE);
+        drawDensity(gc);
+    }
+
+    /**
+     * Helper method to get the batch the next ship/group is drawn with. Ships/groups come in z-order, so when the
+     * style changes the ones collected so far are drawn first, and none is painted over one above it.
+     *
+     * @param gc       : graphics context to draw on
+     * @param batch    : batch for the style of the next ship/group, or null for the density cells
+     * @param selected : true if the batches hold selected ships/groups
+     * @return : the batch
+     */
+    private ShipBatch batchFor(GraphicsContext gc, ShipBatch batch, boolean selected) {
+        if (batch != pending) {
+            flushShips(gc, selected);
+            pending = batch;
+        }
+        return batch;
+    }
+
+    /**
+     * Helper method to draw a ship or a group. The ship/group is added to the batches, which are drawn at the end of
+     * the pass or once they get large.
+     *
+     * @param gc       : graphics context to draw on
+     * @param item     : ship/group to be drawn
+     * @param selected : true if the item is selected
+     */
+    private void drawItem(GraphicsContext gc, Groupable item, boolean selected) {
+        // off screen, and so are all the children of a group
+        if (item.getRight() < viewLeft || item.getLeft() > viewRight
+                || item.getBottom() < viewTop || item.getTop() > viewBottom) {
+            return;
+        }
+        // draw individual ship
+        if (!item.hasChildren()) {
+            drawShip(gc, (Ship) item, selected);
+        } else {
+            // draw group
+            drawGroup(gc, item, selected);
+        }
+        if (filledBatch.size() + outlinedBatch.size() + collidingBatch.size() > BATCH_POINTS) {
+            flushShips(gc, selected);
+        }
     }
 
     /**
      * Helper method to draw an individual ship.
      *
-     * @param ship : ship to be drawn.
+     * @param gc       : graphics context to draw on
+     * @param ship     : ship to be drawn.
+     * @param selected : true if the ship or a group it belongs to is selected
      */
-    private void drawShip(Ship ship) {
-        if (iModel.getSelectedShips().contains(ship) || groupSelected) {
-            gc.setFill(Color.YELLOW);
-            gc.setStroke(Color.CORAL);
+    private void drawShip(GraphicsContext gc, Ship ship, boolean selected) {
+        double zoom = viewCamera.getZoom();
+        double size = Math.max(ship.getRight() - ship.getLeft(), ship.getBottom() - ship.getTop()) * zoom;
+        metrics.countShipDrawn();
+        if (size < POINT_PIXELS) {
+            // too small to see its outline, only where it is matters
+            double x = (ship.getLeft() + ship.getRight()) / 2, y = (ship.getTop() + ship.getBottom()) / 2;
+            if (selected) {
+                batchFor(gc, filledBatch, true).addRect(x - 1 / zoom, y - 1 / zoom, 2 / zoom, 2 / zoom);
+            } else {
+                batchFor(gc, null, false);
+                addDensity(viewCamera.toScreenX(x), viewCamera.toScreenY(y));
+            }
+            return;
+        }
+        if (collisions != null && collisions.isEnabled() && collisions.isColliding(ship)) {
+            batchFor(gc, collidingBatch, selected).addShip(ship);
+        } else if (size < OUTLINE_PIXELS) {
+            batchFor(gc, filledBatch, selected).addShip(ship);
         } else {
-            gc.setStroke(Color.YELLOW);
-            gc.setFill(Color.CORAL);
+            batchFor(gc, outlinedBatch, selected).addShip(ship);
         }
-        gc.fillPolygon(ship.getDisplayXs(), ship.getDisplayYs(), ship.displayLength());
-        gc.strokePolygon(ship.getDisplayXs(), ship.getDisplayYs(), ship.displayLength());
     }
 
     /**
-     * Helper method to draw a group.
+     * Helper method to draw a group. A selected group draws all of its children with the selected colours, and a group
+     * that is small on screen is drawn as its bounding box instead of ship by ship.
      *
-     * @param group : group to be drawn
+     * @param gc       : graphics context to draw on
+     * @param group    : group to be drawn
+     * @param selected : true if the group or a group it belongs to is selected
      */
-    private void drawGroup(Groupable group) {
+    private void drawGroup(GraphicsContext gc, Groupable group, boolean selected) {
+        double width = group.getRight() - group.getLeft(), height = group.getBottom() - group.getTop();
+        boolean boxed = Math.max(width, height) * viewCamera.getZoom() < GROUP_BOX_PIXELS;
+        if (boxed) {
+            // ships of the group would only be a few pixels each, fill the box they are in
+            batchFor(gc, filledBatch, selected).addRect(group.getLeft(), group.getTop(), width, height);
+        }
         // draw bounding box for the group if it is selected
-        if (iModel.getSelectedShips().contains(group)) {
-            groupSelected = true;
-            gc.setStroke(Color.WHITE);
-            gc.strokeRect(group.getLeft(), group.getTop(), Math.abs(group.getLeft() - group.getRight()), Math.abs(group.getTop() - group.getBottom()));
+        if (iModel.isSelected(group)) {
+            groupOutlineBatch.addRect(group.getLeft(), group.getTop(), width, height);
         }
         // draw each ship of the group recursively
-        group.getChildren().forEach(s -> {
-            if (!s.hasChildren()) {
-                drawShip((Ship) s);
-            } else {
-                drawGroup(s);
+        if (!boxed) group.getChildren().forEach(s -> drawItem(gc, s, selected));
+    }
+
+    /**
+     * Helper method to make sure there is a density cell for every part of the background.
+     */
+    private void resetDensity() {
+        densityColumns = (int) Math.ceil(backgroundCanvas.getWidth() / DENSITY_CELL_PIXELS) + 1;
+        int rows = (int) Math.ceil(backgroundCanvas.getHeight() / DENSITY_CELL_PIXELS) + 1;
+        if (density.length < densityColumns * rows) density = new int[densityColumns * rows];
+    }
+
+    /**
+     * Helper method to count a tiny ship into the density cell at a point on screen.
+     *
+     * @param x : x coordinate on screen
+     * @param y : y coordinate on screen
+     */
+    private void addDensity(double x, double y) {
+        int col = (int) (x / DENSITY_CELL_PIXELS), row = (int) (y / DENSITY_CELL_PIXELS);
+        // centre of a ship at the edge can be just off screen
+        if (x < 0 || y < 0 || col >= densityColumns || (row + 1) * densityColumns > density.length) return;
+        int cell = row * densityColumns + col;
+        if (density[cell]++ == 0) {
+            if (densityCellCount == densityCells.length) {
+                densityCells = Arrays.copyOf(densityCells, densityCellCount * 2);
             }
-        });
+            densityCells[densityCellCount++] = cell;
+        }
     }
 
     /**
-     * Method runs when model or iModel has a change.
+     * Helper method to fill every density cell that has ships, more opaque the more ships it has, and clear the
+     * counts.
+     *
+     * @param gc : graphics context to draw on
+     */
+    private void drawDensity(GraphicsContext gc) {
+        if (densityCellCount == 0) return;
+        // cells are drawn in screen coordinates, the world transform is restored for the ships after them
+        gc.save();
+        gc.setTransform(1, 0, 0, 1, 0, 0);
+        gc.setFill(Color.CORAL);
+        for (int i = 0; i < densityCellCount; i++) {
+            int cell = densityCells[i];
+            gc.setGlobalAlpha(Math.min(1, DENSITY_BASE_ALPHA + density[cell] * DENSITY_ALPHA_PER_SHIP));
+            density[cell] = 0;
+            gc.fillRect(cell % densityColumns * DENSITY_CELL_PIXELS, cell / densityColumns * DENSITY_CELL_PIXELS,
+                    DENSITY_CELL_PIXELS, DENSITY_CELL_PIXELS);
+        }
+        densityCellCount = 0;
+        gc.restore();
+    }
+
+    /**
+     * Method to get the scheduler that coalesces redraws of this view.
+     *
+     * @return : repaint scheduler
+     */
+    public RepaintScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Method runs when model or iModel has a change. Both canvases are redrawn on the next pulse.
      */
     @Override
     public void modelChanged() {
-        draw();
+        fullyDamaged = true;
+        overlayDirty = true;
+        scheduler.requestRepaint();
+    }
+
+    /**
+     * Method runs when model or iModel has a change. Changes to selected ships/groups and to the rubber band only
+     * repaint the overlay. For unselected ships/groups, and for ships/groups moving between the two layers, the old
+     * and new bounding boxes are added to the damaged region of the background, as are ships that started or stopped
+     * overlapping others. Everything is redrawn on the next pulse.
+     *
+     * @param event : change that happened
+     */
+    @Override
+    public void modelChanged(ShipModelEvent event) {
+        overlayDirty = true;
+        switch (event.getType()) {
+            case SHIPS_ADDED, SHIPS_REMOVED, SELECTION_CHANGED, CONTACTS_CHANGED -> event.getAffected().forEach(s ->
+                    damage(s.getLeft(), s.getTop(), s.getRight(), s.getBottom()));
+            case SHIPS_MOVED -> event.getAffected().forEach(s -> {
+                // selected ships are only drawn on the overlay
+                if (iModel.isSelected(s)) return;
+                damage(s.getLeft(), s.getTop(), s.getRight(), s.getBottom());
+                damage(s.getLeft() - event.getDX(), s.getTop() - event.getDY(),
+                        s.getRight() - event.getDX(), s.getBottom() - event.getDY());
+            });
+            case SHIPS_REPOSITIONED -> {
+                for (int i = 0; i < event.getAffected().size(); i++) {
+                    Groupable s = event.getAffected().get(i);
+                    if (iModel.isSelected(s)) continue;
+                    double dX = event.getDXs()[i], dY = event.getDYs()[i];
+                    damage(s.getLeft(), s.getTop(), s.getRight(), s.getBottom());
+                    damage(s.getLeft() - dX, s.getTop() - dY, s.getRight() - dX, s.getBottom() - dY);
+                }
+            }
+            case SHIPS_ROTATED -> {
+                // the old bounds of a turned ship are not known, redraw all if any unselected ship turned
+                for (Groupable s : event.getAffected()) {
+                    if (!iModel.isSelected(s)) {
+                        fullyDamaged = true;
+                        break;
+                    }
+                }
+            }
+            case GROUP_CREATED, GROUP_DISSOLVED -> {
+                Groupable g = event.getGroup();
+                damage(g.getLeft(), g.getTop(), g.getRight(), g.getBottom());
+            }
+            case RUBBER_BAND_CHANGED -> {
+                // rubber band is only drawn on the overlay
+            }
+            case VIEWPORT_CHANGED -> fullyDamaged = true;
+        }
+        scheduler.requestRepaint();
+    }
+
+    /**
+     * Helper method to add a rectangle to the damaged region of the background.
+     *
+     * @param x1 : left x coordinate of the rectangle
+     * @param y1 : top y coordinate of the rectangle
+     * @param x2 : right x coordinate of the rectangle
+     * @param y2 : bottom y coordinate of the rectangle
+     */
+    private void damage(double x1, double y1, double x2, double y2) {
+        if (!damaged) {
+            damageLeft = x1;
+            damageTop = y1;
+            damageRight = x2;
+            damageBottom = y2;
+            damaged = true;
+        } else {
+            damageLeft = Math.min(damageLeft, x1);
+            damageTop = Math.min(damageTop, y1);
+            damageRight = Math.max(damageRight, x2);
+            damageBottom = Math.max(damageBottom, y2);
+        }
     }
 }
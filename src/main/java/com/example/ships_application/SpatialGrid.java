@@ -0,0 +1,260 @@
+package com.example.ships_application;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+
+/**
+ * Uniform grid used as a spatial index over the top-level ships/groups of the model. Each item is bucketed into every
+ * cell its bounding box overlaps so that hit testing only has to look at the few items registered under the cursor.
+ * Items are stamped with an increasing order when inserted which mirrors their z-order in the model.
+ */
+public class SpatialGrid {
+    /*
+        Default size of a cell and the maximum number of cells a single item is allowed to span before it is kept in a
+        separate list instead (very large groups would otherwise be copied into hundreds of cells).
+     */
+    public static final double DEFAULT_CELL_SIZE = 64;
+    static final int MAX_CELLS_PER_ITEM = 256;
+
+    /*
+        Instance variables to store the cells, the entry of every indexed item and items too large to be bucketed.
+     */
+    GridCells<Entry> cells;
+    IdentityHashMap<Groupable, Entry> entries;
+    ArrayList<Entry> oversized;
+    long nextOrder;
+    int queryStamp;
+
+    /**
+     * Class to represent an indexed item along with its z-order and the range of cells it is registered in.
+     */
+    static class Entry {
+        Groupable item;
+        long order;
+        int minCol, minRow, maxCol, maxRow;
+        boolean isOversized;
+        int stamp;
+
+        Entry(Groupable item, long order) {
+            this.item = item;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Default constructor for this class. Creates an empty grid with the default cell size.
+     */
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructor to create an empty grid with the given cell size.
+     *
+     * @param cellSize : width and height of a single cell
+     */
+    public SpatialGrid(double cellSize) {
+        cells = new GridCells<>(cellSize);
+        entries = new IdentityHashMap<>();
+        oversized = new ArrayList<>();
+    }
+
+    /**
+     * Method to add an item to the index on top of every item already indexed.
+     *
+     * @param item : ship/group to be indexed
+     */
+    public void insert(Groupable item) {
+        Entry entry = new Entry(item, nextOrder++);
+        entries.put(item, entry);
+        register(entry);
+    }
+
+    /**
+     * Method to remove an item from the index.
+     *
+     * @param item : ship/group to be removed
+     */
+    public void remove(Groupable item) {
+        Entry entry = entries.remove(item);
+        if (entry != null) unregister(entry);
+    }
+
+    /**
+     * Method to refresh the cells of an item after its bounding box has changed. The z-order of the item is kept.
+     *
+     * @param item : ship/group that was moved
+     */
+    public void update(Groupable item) {
+        Entry entry = entries.get(item);
+        if (entry == null) return;
+        // nothing to do when the item is still within the same cells
+        if (!entry.isOversized
+                && entry.minCol == cells.col(item.getLeft()) && entry.maxCol == cells.col(item.getRight())
+                && entry.minRow == cells.row(item.getTop()) && entry.maxRow == cells.row(item.getBottom())) {
+            return;
+        }
+        unregister(entry);
+        register(entry);
+    }
+
+    /**
+     * Method to remove every item from the index.
+     */
+    public void clear() {
+        cells.clear();
+        entries.clear();
+        oversized.clear();
+    }
+
+    /**
+     * Method to check if an item is in the index.
+     *
+     * @param item : ship/group to check
+     * @return : true if it is indexed else false
+     */
+    public boolean contains(Groupable item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Method to get the number of items in the index.
+     *
+     * @return : number of indexed items
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Method to find the topmost item that contains the given point.
+     *
+     * @param x : x coordinate of the point
+     * @param y : y coordinate of the point
+     * @return : topmost ship/group containing the point if there is one
+     */
+    public Optional<Groupable> topmostAt(double x, double y) {
+        Entry best = null;
+        ArrayList<Entry> cell = cells.get(cells.col(x), cells.row(y));
+        if (cell != null) best = topmostAt(cell, x, y, null);
+        best = topmostAt(oversized, x, y, best);
+        return best == null ? Optional.empty() : Optional.of(best.item);
+    }
+
+    /**
+     * Method to get all items whose bounding box intersects the given rectangle, ordered from bottom to top.
+     *
+     * @param x1 : left x coordinate of the rectangle
+     * @param y1 : top y coordinate of the rectangle
+     * @param x2 : right x coordinate of the rectangle
+     * @param y2 : bottom y coordinate of the rectangle
+     * @return : list of intersecting ships/groups in z-order
+     */
+    public ArrayList<Groupable> query(double x1, double y1, double x2, double y2) {
+        ArrayList<Entry> found = new ArrayList<>();
+        int minCol = cells.col(x1), maxCol = cells.col(x2), minRow = cells.row(y1), maxRow = cells.row(y2);
+        long cellCount = ((long) maxCol - minCol + 1) * ((long) maxRow - minRow + 1);
+        if (cellCount > entries.size()) {
+            // rectangle covers more cells than there are items, scanning every item is cheaper
+            for (Entry e : entries.values()) {
+                if (intersects(e.item, x1, y1, x2, y2)) found.add(e);
+            }
+        } else {
+            // stamp entries while collecting them since items spanning several cells are found more than once
+            int stamp = ++queryStamp;
+            for (int c = minCol; c <= maxCol; c++) {
+                for (int r = minRow; r <= maxRow; r++) {
+                    ArrayList<Entry> cell = cells.get(c, r);
+                    if (cell == null) continue;
+                    for (Entry e : cell) {
+                        if (e.stamp != stamp && intersects(e.item, x1, y1, x2, y2)) {
+                            e.stamp = stamp;
+                            found.add(e);
+                        }
+                    }
+                }
+            }
+            for (Entry e : oversized) {
+                if (intersects(e.item, x1, y1, x2, y2)) found.add(e);
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.order, b.order));
+        ArrayList<Groupable> result = new ArrayList<>(found.size());
+        found.forEach(e -> result.add(e.item));
+        return result;
+    }
+
+    /**
+     * Helper method to pick the topmost entry of a cell that contains the given point.
+     *
+     * @param cell : entries to check
+     * @param x    : x coordinate of the point
+     * @param y    : y coordinate of the point
+     * @param best : best entry found so far, can be null
+     * @return : topmost entry containing the point, or best if none is above it
+     */
+    private Entry topmostAt(ArrayList<Entry> cell, double x, double y, Entry best) {
+        for (Entry e : cell) {
+            // only entries above the current best can change the result, check bounding box before the shape
+            if (best != null && e.order < best.order) continue;
+            Groupable item = e.item;
+            if (x < item.getLeft() || x > item.getRight() || y < item.getTop() || y > item.getBottom()) continue;
+            if (item.contains(x, y)) best = e;
+        }
+        return best;
+    }
+
+    /**
+     * Helper method to add an entry to every cell covered by its item's bounding box.
+     *
+     * @param entry : entry to register
+     */
+    private void register(Entry entry) {
+        Groupable item = entry.item;
+        entry.minCol = cells.col(item.getLeft());
+        entry.maxCol = cells.col(item.getRight());
+        entry.minRow = cells.row(item.getTop());
+        entry.maxRow = cells.row(item.getBottom());
+        long cellCount = ((long) entry.maxCol - entry.minCol + 1) * ((long) entry.maxRow - entry.minRow + 1);
+        entry.isOversized = cellCount > MAX_CELLS_PER_ITEM;
+        if (entry.isOversized) {
+            oversized.add(entry);
+            return;
+        }
+        for (int c = entry.minCol; c <= entry.maxCol; c++) {
+            for (int r = entry.minRow; r <= entry.maxRow; r++) {
+                cells.add(c, r, entry);
+            }
+        }
+    }
+
+    /**
+     * Helper method to remove an entry from every cell it was registered in.
+     *
+     * @param entry : entry to unregister
+     */
+    private void unregister(Entry entry) {
+        if (entry.isOversized) {
+            oversized.remove(entry);
+            return;
+        }
+        for (int c = entry.minCol; c <= entry.maxCol; c++) {
+            for (int r = entry.minRow; r <= entry.maxRow; r++) cells.remove(c, r, entry);
+        }
+    }
+
+    /**
+     * Helper method to check if the bounding box of an item intersects a rectangle.
+     *
+     * @param item : ship/group to check
+     * @param x1   : left x coordinate of the rectangle
+     * @param y1   : top y coordinate of the rectangle
+     * @param x2   : right x coordinate of the rectangle
+     * @param y2   : bottom y coordinate of the rectangle
+     * @return : true if the bounding box and the rectangle overlap else false
+     */
+    private static boolean intersects(Groupable item, double x1, double y1, double x2, double y2) {
+        return item.getRight() >= x1 && item.getLeft() <= x2 && item.getBottom() >= y1 && item.getTop() <= y2;
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.ships_application;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to record changes of the model as small deltas so they can be undone and redone. The journal subscribes to
+ * the model and turns every event into a delta that references the affected ships/groups instead of copying the
+ * scene. Consecutive moves or rotations of the same selection, and consecutive repositions of the same ships (e.g. the
+ * frames of a simulation), are merged into one delta until the gesture is sealed. Changes made while a compound
+ * change is open, e.g. the batches of a scene being loaded, are undone and redone together. The oldest deltas are
+ * dropped once the estimated size of the history goes over a budget.
+ */
+public class UndoJournal implements ShipModelSubscriber {
+    // default budget of the history
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    /*
+        Rough sizes used to estimate the memory held by a delta: the delta itself, a reference to an affected item,
+        and the data of a ship that is only kept alive by the journal (e.g. cut ships).
+     */
+    static final long DELTA_BYTES = 64;
+    static final long REFERENCE_BYTES = 8;
+    static final long RETAINED_SHIP_BYTES = 96;
+
+    /**
+     * Class to represent one undoable change.
+     */
+    static class Delta {
+        final ShipModelEvent.Type type;
+        final ArrayList<Groupable> items;
+        final Groupable group;
+        double dX, dY;
+        // distance of each item for a reposition
+        double[] dXs, dYs;
+        // angle and pivot of a rotation
+        double angle, pivotX, pivotY;
+        // list the moves were reported with, used to merge later moves of the same selection
+        List<Groupable> source;
+        // deltas of a compound change in the order they happened, or null for a single change
+        ArrayList<Delta> parts;
+        long bytes;
+
+        Delta(ShipModelEvent.Type type, ArrayList<Groupable> items, Groupable group) {
+            this.type = type;
+            this.items = items;
+            this.group = group;
+        }
+    }
+
+    /*
+        Instance variables to store the models changes are applied to, the undo and redo histories and their
+        estimated size. While a delta is applied the events it causes are not recorded.
+     */
+    ShipModel model;
+    InteractionModel iModel;
+    ArrayDeque<Delta> undoStack, redoStack;
+    long budgetBytes, usedBytes;
+    boolean applying;
+    // move delta that later moves of the same selection are merged into, or null once the gesture is sealed
+    Delta openMove;
+    // compound change that new deltas become part of, or null when none is open
+    Delta compound;
+
+    /**
+     * Constructor for this class with the default budget.
+     *
+     * @param model  : model to undo changes of
+     * @param iModel : iModel to update the selection of
+     */
+    public UndoJournal(ShipModel model, InteractionModel iModel) {
+        this(model, iModel, DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Constructor for this class.
+     *
+     * @param model       : model to undo changes of
+     * @param iModel      : iModel to update the selection of
+     * @param budgetBytes : estimated bytes the history may hold before the oldest deltas are dropped
+     */
+    public UndoJournal(ShipModel model, InteractionModel iModel, long budgetBytes) {
+        this.model = model;
+        this.iModel = iModel;
+        this.budgetBytes = budgetBytes;
+        undoStack = new ArrayDeque<>();
+        redoStack = new ArrayDeque<>();
+    }
+
+    /**
+     * Method to set the budget of the history. The oldest deltas are dropped right away if it is already over.
+     *
+     * @param budgetBytes : estimated bytes the history may hold
+     */
+    public void setBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evict();
+    }
+
+    /**
+     * Method to end the current gesture, so the next move starts a new delta instead of merging into the last one.
+     */
+    public void seal() {
+        openMove = null;
+    }
+
+    /**
+     * Method to start a compound change. Every change until endCompound is undone and redone as one, and the compound
+     * change only enters the history with its first part.
+     */
+    public void beginCompound() {
+        seal();
+        compound = new Delta(null, null, null);
+        compound.parts = new ArrayList<>();
+        compound.bytes = DELTA_BYTES;
+    }
+
+    /**
+     * Method to end the compound change, if one is open. The next change starts a new delta.
+     */
+    public void endCompound() {
+        seal();
+        compound = null;
+    }
+
+    /**
+     * Method to end the compound change and drop it from the history, e.g. after its changes have been reverted by
+     * hand. The changes before it can still be undone.
+     */
+    public void discardCompound() {
+        if (compound != null && undoStack.peekLast() == compound) {
+            undoStack.pollLast();
+            usedBytes -= compound.bytes;
+        }
+        endCompound();
+    }
+
+    /**
+     * Method to check if there is a change to undo.
+     *
+     * @return : true if undo can be done else false
+     */
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    /**
+     * Method to check if there is a change to redo.
+     *
+     * @return : true if redo can be done else false
+     */
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    /**
+     * Method to undo the last change. The ships/groups it affected become the selection.
+     */
+    public void undo() {
+        endCompound();
+        Delta delta = undoStack.pollLast();
+        if (delta == null) return;
+        usedBytes -= delta.bytes;
+        apply(delta, true);
+        delta.bytes = estimate(delta, true);
+        redoStack.addLast(delta);
+        usedBytes += delta.bytes;
+        evict();
+    }
+
+    /**
+     * Method to redo the last undone change. The ships/groups it affected become the selection.
+     */
+    public void redo() {
+        endCompound();
+        Delta delta = redoStack.pollLast();
+        if (delta == null) return;
+        usedBytes -= delta.bytes;
+        apply(delta, false);
+        delta.bytes = estimate(delta, false);
+        undoStack.addLast(delta);
+        usedBytes += delta.bytes;
+        evict();
+    }
+
+    /**
+     * Method to get the number of changes that can be undone.
+     *
+     * @return : size of the undo history
+     */
+    public int undoSize() {
+        return undoStack.size();
+    }
+
+    /**
+     * Method to get the estimated memory held by the undo and redo histories.
+     *
+     * @return : estimated bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Method runs when the model has a change without details. Such a change cannot be undone, so the history is
+     * cleared.
+     */
+    @Override
+    public void modelChanged() {
+        if (applying) return;
+        undoStack.clear();
+        redoStack.clear();
+        usedBytes = 0;
+        openMove = null;
+        compound = null;
+    }
+
+    /**
+     * Method runs when the model has a change. The change is recorded as a delta and the redo history is cleared.
+     *
+     * @param event : change that happened
+     */
+    @Override
+    public void modelChanged(ShipModelEvent event) {
+        if (applying) return;
+        Delta delta;
+        switch (event.getType()) {
+            case SHIPS_MOVED -> {
+                if (openMove != null && openMove.type == event.getType() && openMove.source == event.getAffected()) {
+                    // selection is still being dragged, merge into the move recorded so far
+                    openMove.dX += event.getDX();
+                    openMove.dY += event.getDY();
+                    return;
+                }
+                delta = new Delta(event.getType(), new ArrayList<>(event.getAffected()), null);
+                delta.source = event.getAffected();
+                delta.dX = event.getDX();
+                delta.dY = event.getDY();
+            }
+            case SHIPS_REPOSITIONED -> {
+                if (openMove != null && openMove.type == event.getType() && openMove.source == event.getAffected()) {
+                    // same ships are still being repositioned, add up the distance of each of them
+                    for (int i = 0; i < openMove.dXs.length; i++) {
+                        openMove.dXs[i] += event.getDXs()[i];
+                        openMove.dYs[i] += event.getDYs()[i];
+                    }
+                    return;
+                }
+                delta = new Delta(event.getType(), new ArrayList<>(event.getAffected()), null);
+                delta.source = event.getAffected();
+                delta.dXs = event.getDXs().clone();
+                delta.dYs = event.getDYs().clone();
+            }
+            case SHIPS_ROTATED -> {
+                if (openMove != null && openMove.type == event.getType() && openMove.source == event.getAffected()
+                        && openMove.pivotX == event.getPivotX() && openMove.pivotY == event.getPivotY()) {
+                    // selection is still being turned around the same point, merge the angles
+                    openMove.angle += event.getAngle();
+                    return;
+                }
+                delta = new Delta(event.getType(), new ArrayList<>(event.getAffected()), null);
+                delta.source = event.getAffected();
+                delta.angle = event.getAngle();
+                delta.pivotX = event.getPivotX();
+                delta.pivotY = event.getPivotY();
+            }
+            case SHIPS_ADDED, SHIPS_REMOVED, GROUP_DISSOLVED ->
+                    delta = new Delta(event.getType(), new ArrayList<>(event.getAffected()), event.getGroup());
+            case GROUP_CREATED -> delta = new Delta(event.getType(), null, event.getGroup());
+            default -> {
+                return;
+            }
+        }
+        openMove = delta.source != null ? delta : null;
+        redoStack.forEach(d -> usedBytes -= d.bytes);
+        redoStack.clear();
+        delta.bytes = estimate(delta, false);
+        if (compound != null) {
+            // a compound change is open, the delta becomes its next part
+            if (compound.parts.isEmpty()) {
+                undoStack.addLast(compound);
+                usedBytes += compound.bytes;
+            }
+            compound.parts.add(delta);
+            compound.bytes += delta.bytes;
+        } else {
+            undoStack.addLast(delta);
+        }
+        usedBytes += delta.bytes;
+        evict();
+    }
+
+    /**
+     * Helper method to apply a delta, or its inverse, to the model and select what it affected.
+     *
+     * @param delta   : delta to apply
+     * @param inverse : true to undo the delta, false to redo it
+     */
+    private void apply(Delta delta, boolean inverse) {
+        if (delta.parts != null) {
+            // compound change, undo its parts from the last one back and redo them in order
+            for (int i = 0; i < delta.parts.size(); i++) {
+                apply(delta.parts.get(inverse ? delta.parts.size() - 1 - i : i), inverse);
+            }
+            return;
+        }
+        applying = true;
+        try {
+            switch (delta.type) {
+                case SHIPS_ADDED, SHIPS_REMOVED -> {
+                    if ((delta.type == ShipModelEvent.Type.SHIPS_ADDED) == inverse) {
+                        model.remove(delta.items);
+                        iModel.clearSelection();
+                    } else {
+                        model.add(delta.items);
+                        iModel.newSelection(delta.items);
+                    }
+                }
+                case SHIPS_MOVED -> {
+                    double sign = inverse ? -1 : 1;
+                    model.move(delta.items, sign * delta.dX, sign * delta.dY);
+                    iModel.newSelection(delta.items);
+                }
+                case SHIPS_ROTATED -> {
+                    model.rotate(delta.items, inverse ? -delta.angle : delta.angle, delta.pivotX, delta.pivotY);
+                    iModel.newSelection(delta.items);
+                }
+                case SHIPS_REPOSITIONED -> {
+                    double sign = inverse ? -1 : 1;
+                    double[] dXs = new double[delta.dXs.length], dYs = new double[delta.dYs.length];
+                    for (int i = 0; i < dXs.length; i++) {
+                        dXs[i] = sign * delta.dXs[i];
+                        dYs[i] = sign * delta.dYs[i];
+                    }
+                    model.reposition(delta.items, dXs, dYs);
+                    iModel.newSelection(delta.items);
+                }
+                case GROUP_CREATED, GROUP_DISSOLVED -> {
+                    if ((delta.type == ShipModelEvent.Type.GROUP_CREATED) == inverse) {
+                        iModel.newSelection(model.ungroup(delta.group));
+                    } else {
+                        model.regroup(delta.group);
+                        iModel.newSelection(delta.group);
+                    }
+                }
+            }
+        } finally {
+            applying = false;
+        }
+    }
+
+    /**
+     * Helper method to estimate the memory held by a delta. Ships that are out of the model while the delta waits in
+     * its history are only kept alive by the journal, so their data is counted too.
+     *
+     * @param delta  : delta to estimate
+     * @param onRedo : true if the delta is in the redo history
+     * @return : estimated bytes
+     */
+    private static long estimate(Delta delta, boolean onRedo) {
+        if (delta.parts != null) {
+            long bytes = DELTA_BYTES;
+            for (Delta part : delta.parts) {
+                part.bytes = estimate(part, onRedo);
+                bytes += part.bytes;
+            }
+            return bytes;
+        }
+        if (delta.items == null) return DELTA_BYTES;
+        long bytes = DELTA_BYTES + delta.items.size() * REFERENCE_BYTES;
+        if (delta.dXs != null) bytes += 16L * delta.dXs.length;
+        boolean retained = delta.type == ShipModelEvent.Type.SHIPS_REMOVED && !onRedo
+                || delta.type == ShipModelEvent.Type.SHIPS_ADDED && onRedo;
+        if (retained) {
+            for (Groupable item : delta.items) bytes += countShips(item) * RETAINED_SHIP_BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Helper method to count the ships of a ship/group.
+     *
+     * @param item : ship/group to count
+     * @return : number of ships
+     */
+    private static long countShips(Groupable item) {
+        if (!item.hasChildren()) return 1;
+        long count = 0;
+        for (Groupable child : item.getChildren()) count += countShips(child);
+        return count;
+    }
+
+    /**
+     * Helper method to drop the oldest deltas until the history fits in the budget. Undo deltas go first, starting
+     * from the oldest, and redo deltas only once the undo history is empty.
+     */
+    private void evict() {
+        while (usedBytes > budgetBytes && !undoStack.isEmpty()) {
+            Delta oldest = undoStack.pollFirst();
+            usedBytes -= oldest.bytes;
+            if (oldest == openMove) openMove = null;
+            if (oldest == compound) compound = null;
+        }
+        while (usedBytes > budgetBytes && !redoStack.isEmpty()) {
+            // the redo history is replayed from its end, so its far end is the oldest part
+            usedBytes -= redoStack.pollFirst().bytes;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 module com.example.a4basics {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.jfr;
+    requires jdk.management;
 
 
     opens com.example.ships_application to javafx.fxml;
@@ -0,0 +1,317 @@
+package com.example.ships_application;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for recovering a scene from the snapshot and log written by AutosaveLog, including logs whose last record was
+ * cut off or damaged by a crash, and for compacting the log as it grows.
+ */
+class AutosaveLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversSnapshotAndLogTail() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(200, 0));
+        log.compact();
+        // changes after the snapshot are only in the log
+        model.add(ships(50, 5000));
+        ArrayList<Groupable> selection = new ArrayList<>(model.getShips().subList(0, 30));
+        for (int i = 0; i < 40; i++) model.move(selection, 1.5, -0.5);
+        model.rotate(selection, 0.3, 100, 100);
+        Groupable group = model.createGroup(new ArrayList<>(model.getShips().subList(100, 120)));
+        model.move(new ArrayList<>(List.of(group)), 10, 10);
+        model.remove(new ArrayList<>(model.getShips().subList(0, 5)));
+        String expected = describe(model);
+        log.close();
+
+        assertTrue(Files.exists(directory.resolve("snapshot-1.ships")));
+        assertEquals(expected, describe(recover()));
+    }
+
+    @Test
+    void dropsTruncatedTail() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(20, 0));
+        String expected = describe(model);
+        model.add(ships(1, 9000));
+        log.close();
+        Path file = directory.resolve("log-0.bin");
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // the last record adds one ship, cut it off in the middle
+            channel.truncate(size - 10);
+        }
+
+        assertEquals(expected, describe(recover()));
+        // the damaged tail is dropped, so new records follow the last whole one
+        assertTrue(Files.size(file) < size - 10);
+    }
+
+    @Test
+    void dropsTailWithBadChecksum() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(20, 0));
+        String expected = describe(model);
+        model.move(new ArrayList<>(model.getShips()), 3, 4);
+        log.close();
+        Path file = directory.resolve("log-0.bin");
+        byte[] bytes = Files.readAllBytes(file);
+        // the last record is the move, flip a bit of its distance
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        assertEquals(expected, describe(recover()));
+    }
+
+    @Test
+    void recoveredLogKeepsAppending() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(10, 0));
+        log.close();
+
+        ShipModel recovered = new ShipModel();
+        AutosaveLog reopened = new AutosaveLog(directory);
+        reopened.recover(recovered);
+        recovered.addSubscriber(reopened);
+        ArrayList<Groupable> selection = new ArrayList<>(recovered.getShips());
+        recovered.move(selection, 7, 7);
+        recovered.add(ships(3, 4000));
+        String expected = describe(recovered);
+        reopened.close();
+
+        assertEquals(expected, describe(recover()));
+    }
+
+    @Test
+    void longDragWritesIdsOnce() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(20000, 0));
+        log.close();
+        long afterAdd = Files.size(directory.resolve("log-0.bin"));
+
+        log = new AutosaveLog(directory);
+        ShipModel recovered = new ShipModel();
+        log.recover(recovered);
+        recovered.addSubscriber(log);
+        ArrayList<Groupable> selection = new ArrayList<>(recovered.getShips());
+        for (int i = 0; i < 600; i++) recovered.move(selection, 0.25, 0.25);
+        String expected = describe(recovered);
+        log.close();
+
+        long dragBytes = Files.size(directory.resolve("log-0.bin")) - afterAdd;
+        // one selection of the ids, and then only distances however often the writer flushed
+        assertTrue(dragBytes < 4L * 20000 + 64 * 1024, "drag wrote " + dragBytes + " bytes");
+        assertEquals(expected, describe(recover()));
+    }
+
+    @Test
+    void repositionsAreAddedUpUntilSealed() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(20000, 0));
+        log.close();
+        long afterAdd = Files.size(directory.resolve("log-0.bin"));
+
+        log = new AutosaveLog(directory);
+        // frames are only queued when sealed or before another change
+        log.syncIntervalMillis = Long.MAX_VALUE;
+        ShipModel recovered = new ShipModel();
+        log.recover(recovered);
+        recovered.addSubscriber(log);
+        ArrayList<Groupable> fleet = new ArrayList<>(recovered.getShips());
+        double[] dXs = new double[fleet.size()], dYs = new double[fleet.size()];
+        // frames of a simulation, whose buffers are reused by every frame
+        for (int frame = 0; frame < 60; frame++) {
+            for (int i = 0; i < dXs.length; i++) {
+                dXs[i] = i % 7 - frame % 3;
+                dYs[i] = frame * 0.5;
+            }
+            recovered.reposition(fleet, dXs, dYs);
+        }
+        log.seal();
+        log.flush();
+        String expected = describe(recovered);
+        long frameBytes = Files.size(directory.resolve("log-0.bin")) - afterAdd;
+        log.close();
+
+        // one selection of the ids and one reposition, each with a length, checksum and type
+        assertEquals(9 + 4 + 4L * 20000 + 9 + 16L * 20000, frameBytes);
+        assertEquals(expected, describe(recover()));
+    }
+
+    @Test
+    void compactsGrowingLog() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = new AutosaveLog(directory);
+        log.minCompactionBytes = 256 * 1024;
+        log.recover(model);
+        model.addSubscriber(log);
+        // adding and removing the same ships grows the log without growing the scene
+        for (int i = 0; i < 100 && Files.notExists(directory.resolve("snapshot-1.ships")); i++) {
+            ArrayList<Groupable> batch = ships(5000, 0);
+            model.add(batch);
+            model.remove(batch);
+            log.flush();
+        }
+        model.add(ships(7, 300));
+        String expected = describe(model);
+        log.close();
+
+        assertTrue(Files.exists(directory.resolve("snapshot-1.ships")), "log was never compacted");
+        assertTrue(Files.notExists(directory.resolve("log-0.bin")));
+        assertTrue(Files.size(directory.resolve("log-1.bin")) < log.minCompactionBytes);
+        assertEquals(expected, describe(recover()));
+    }
+
+    @Test
+    void compactsAfterManyDrags() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(20000, 0));
+        // every drag of a new selection writes its ids once
+        for (int i = 0; i < 100 && Files.notExists(directory.resolve("snapshot-1.ships")); i++) {
+            ArrayList<Groupable> selection = new ArrayList<>(model.getShips());
+            for (int j = 0; j < 3; j++) model.move(selection, 1, 0);
+            log.flush();
+        }
+        String expected = describe(model);
+        log.close();
+
+        assertTrue(Files.exists(directory.resolve("snapshot-1.ships")), "log was never compacted");
+        assertEquals(expected, describe(recover()));
+    }
+
+    @Test
+    void dropsRecordsThatDoNotFitTheScene() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        model.add(ships(20, 0));
+        String expected = describe(model);
+        log.close();
+        Path file = directory.resolve("log-0.bin");
+        long size = Files.size(file);
+        // a whole record with a valid checksum that removes an item the scene never had
+        ByteBuffer data = ByteBuffer.allocate(9).put(AutosaveLog.REMOVE).putInt(1).putInt(999);
+        CRC32 crc = new CRC32();
+        crc.update(data.array());
+        ByteBuffer record = ByteBuffer.allocate(17).putInt(9).putInt((int) crc.getValue()).put(data.array());
+        Files.write(file, record.array(), StandardOpenOption.APPEND);
+
+        assertEquals(expected, describe(recover()));
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    void stopsQueuingOnceWritingFails() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = open(model);
+        ArrayList<IOException> failures = new ArrayList<>();
+        log.setFailureHandler(failures::add);
+        model.add(ships(5, 0));
+        log.flush();
+        // the snapshot of a compaction cannot be written once the directory is gone
+        Files.delete(directory.resolve("log-0.bin"));
+        Files.delete(directory);
+        log.compact();
+        log.flush();
+        model.add(ships(5, 100));
+        model.move(new ArrayList<>(model.getShips()), 1, 1);
+
+        assertTrue(log.hasFailed());
+        assertEquals(1, failures.size());
+        assertTrue(log.queue.isEmpty());
+        log.close();
+    }
+
+    /**
+     * Helper method to start autosaving a model into the test directory.
+     *
+     * @param model : empty model
+     * @return : log subscribed to the model
+     * @throws IOException : if the directory cannot be used
+     */
+    private AutosaveLog open(ShipModel model) throws IOException {
+        AutosaveLog log = new AutosaveLog(directory);
+        log.recover(model);
+        model.addSubscriber(log);
+        return log;
+    }
+
+    /**
+     * Helper method to recover the autosaved scene into a new model.
+     *
+     * @return : recovered model
+     * @throws Exception : if the autosave files cannot be read
+     */
+    private ShipModel recover() throws Exception {
+        ShipModel model = new ShipModel();
+        AutosaveLog log = new AutosaveLog(directory);
+        log.recover(model);
+        log.close();
+        return model;
+    }
+
+    /**
+     * Helper method to create ships in a row.
+     *
+     * @param count : number of ships
+     * @param y     : y coordinate of the row
+     * @return : new ships
+     */
+    private static ArrayList<Groupable> ships(int count, double y) {
+        ArrayList<Groupable> ships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) ships.add(new Ship(i * 40, y));
+        return ships;
+    }
+
+    /**
+     * Helper method to describe the ships/groups of a model, with their positions and angles, in z-order.
+     *
+     * @param model : model to describe
+     * @return : description
+     */
+    private static String describe(ShipModel model) {
+        StringBuilder description = new StringBuilder();
+        model.getShips().forEach(item -> describe(item, description));
+        return description.toString();
+    }
+
+    /**
+     * Helper method to describe a ship/group and its children.
+     *
+     * @param item        : ship/group to describe
+     * @param description : description to append to
+     */
+    private static void describe(Groupable item, StringBuilder description) {
+        if (item.hasChildren()) {
+            description.append('(');
+            item.getChildren().forEach(child -> describe(child, description));
+            description.append(')');
+        } else {
+            Ship ship = (Ship) item;
+            description.append(String.format("%.6f,%.6f,%.6f;", ship.getTranslateX(), ship.getTranslateY(),
+                    ship.getAngle()));
+        }
+    }
+}
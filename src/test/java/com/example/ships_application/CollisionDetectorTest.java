@@ -0,0 +1,190 @@
+package com.example.ships_application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the contacts the collision detector keeps up to date as ships are added, moved, rotated and removed are
+ * the same as checking every pair of ships, and as finding them all again from scratch.
+ */
+class CollisionDetectorTest {
+    @Test
+    void matchesBruteForce() {
+        ShipModel model = new ShipModel();
+        CollisionDetector detector = new CollisionDetector(model);
+        detector.setEnabled(true);
+        model.addSubscriber(detector);
+        Random random = new Random(24);
+        model.add(ships(random, 2000, 1500));
+        assertTrue(detector.contactCount() > 0, "ships are too far apart to touch");
+        assertEquals(bruteForce(model), pairs(model, detector.getContactPairs()));
+
+        for (int round = 0; round < 20; round++) {
+            ArrayList<Groupable> some = pick(random, model, 200);
+            switch (round % 4) {
+                case 0 -> model.move(some, random.nextDouble() * 60 - 30, random.nextDouble() * 60 - 30);
+                case 1 -> model.rotate(some, random.nextDouble() * 2 - 1, 750, 750);
+                case 2 -> model.remove(some);
+                default -> model.add(ships(random, 200, 1500));
+            }
+            assertEquals(bruteForce(model), pairs(model, detector.getContactPairs()), "after round " + round);
+            assertEquals(detector.getContactPairs().size(), detector.contactCount());
+        }
+    }
+
+    @Test
+    void matchesFullRebuild() {
+        ShipModel model = new ShipModel();
+        CollisionDetector detector = new CollisionDetector(model);
+        detector.setEnabled(true);
+        model.addSubscriber(detector);
+        Random random = new Random(100);
+        model.add(ships(random, 100000, 16000));
+
+        for (int round = 0; round < 8; round++) {
+            ArrayList<Groupable> some = pick(random, model, 5000);
+            switch (round % 4) {
+                case 0 -> model.move(some, random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100);
+                case 1 -> model.rotate(some, random.nextDouble() * 2 - 1, 8000, 8000);
+                case 2 -> model.remove(some);
+                default -> model.add(ships(random, 5000, 16000));
+            }
+        }
+        // a detector that was not listening finds every contact from scratch when it is enabled
+        CollisionDetector rebuilt = new CollisionDetector(model);
+        rebuilt.setEnabled(true);
+        assertTrue(rebuilt.contactCount() > 0, "ships are too far apart to touch");
+        assertEquals(rebuilt.contactCount(), detector.contactCount());
+        assertEquals(pairs(model, rebuilt.getContactPairs()), pairs(model, detector.getContactPairs()));
+    }
+
+    /**
+     * Helper method to create ships at random places in a square.
+     *
+     * @param random : source of the places
+     * @param count  : number of ships
+     * @param size   : width and height of the square
+     * @return : new ships
+     */
+    private static ArrayList<Groupable> ships(Random random, int count, double size) {
+        ArrayList<Groupable> ships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) ships.add(new Ship(random.nextDouble() * size, random.nextDouble() * size));
+        return ships;
+    }
+
+    /**
+     * Helper method to pick different ships of the model at random.
+     *
+     * @param random : source of the choice
+     * @param model  : model to pick from
+     * @param count  : number of ships to pick
+     * @return : picked ships
+     */
+    private static ArrayList<Groupable> pick(Random random, ShipModel model, int count) {
+        ArrayList<Groupable> all = new ArrayList<>(model.getShips());
+        ArrayList<Groupable> picked = new ArrayList<>(count);
+        for (int i = 0; i < count && !all.isEmpty(); i++) {
+            int index = random.nextInt(all.size());
+            picked.add(all.get(index));
+            all.set(index, all.get(all.size() - 1));
+            all.remove(all.size() - 1);
+        }
+        return picked;
+    }
+
+    /**
+     * Helper method to find the touching pairs of ships by testing every pair.
+     *
+     * @param model : model with ungrouped ships
+     * @return : pairs, by the indices of the ships in the model
+     */
+    private static TreeSet<Long> bruteForce(ShipModel model) {
+        ArrayList<Groupable> ships = model.getShips();
+        TreeSet<Long> pairs = new TreeSet<>();
+        for (int i = 0; i < ships.size(); i++) {
+            for (int j = i + 1; j < ships.size(); j++) {
+                if (overlap((Ship) ships.get(i), (Ship) ships.get(j))) pairs.add(pair(i, j));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Helper method to turn pairs of ships into pairs of their indices in the model.
+     *
+     * @param model : model with ungrouped ships
+     * @param found : pairs of ships
+     * @return : pairs, by the indices of the ships in the model
+     */
+    private static TreeSet<Long> pairs(ShipModel model, ArrayList<Ship[]> found) {
+        IdentityHashMap<Groupable, Integer> indices = new IdentityHashMap<>();
+        ArrayList<Groupable> ships = model.getShips();
+        for (int i = 0; i < ships.size(); i++) indices.put(ships.get(i), i);
+        TreeSet<Long> pairs = new TreeSet<>();
+        for (Ship[] p : found) pairs.add(pair(indices.get(p[0]), indices.get(p[1])));
+        return pairs;
+    }
+
+    /**
+     * Helper method to combine the indices of two ships into the same key in either order.
+     *
+     * @param i : index of one ship
+     * @param j : index of the other ship
+     * @return : key of the pair
+     */
+    private static long pair(int i, int j) {
+        return (long) Math.min(i, j) << 32 | Math.max(i, j);
+    }
+
+    /**
+     * Helper method to check if the outlines of two ships overlap, without the detector's grid: either two edges share
+     * a point or one outline lies inside the other. Ships whose bounding boxes are apart cannot overlap.
+     *
+     * @param a : first ship
+     * @param b : second ship
+     * @return : true if the ships overlap else false
+     */
+    private static boolean overlap(Ship a, Ship b) {
+        if (a.getRight() < b.getLeft() || b.getRight() < a.getLeft()
+                || a.getBottom() < b.getTop() || b.getBottom() < a.getTop()) {
+            return false;
+        }
+        double[] xsA = new double[a.displayLength()], ysA = new double[xsA.length];
+        double[] xsB = new double[b.displayLength()], ysB = new double[xsB.length];
+        a.writeDisplayCoordinates(xsA, ysA);
+        b.writeDisplayCoordinates(xsB, ysB);
+        for (int i = 0, pi = xsA.length - 1; i < xsA.length; pi = i++) {
+            for (int j = 0, pj = xsB.length - 1; j < xsB.length; pj = j++) {
+                if (CollisionDetector.segmentsIntersect(xsA[pi], ysA[pi], xsA[i], ysA[i],
+                        xsB[pj], ysB[pj], xsB[j], ysB[j])) {
+                    return true;
+                }
+            }
+        }
+        return inside(xsA[0], ysA[0], xsB, ysB) || inside(xsB[0], ysB[0], xsA, ysA);
+    }
+
+    /**
+     * Helper method to check if a point is inside a polygon, by counting the edges a ray from the point crosses.
+     *
+     * @param x  : x coordinate of the point
+     * @param y  : y coordinate of the point
+     * @param xs : x coordinates of the polygon
+     * @param ys : y coordinates of the polygon
+     * @return : true if the point is inside else false
+     */
+    private static boolean inside(double x, double y, double[] xs, double[] ys) {
+        boolean in = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((ys[i] > y) != (ys[j] > y) && x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i]) in = !in;
+        }
+        return in;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ships_application;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that scene files are read back as they were saved, and that corrupt counts and indexes in a file are reported
+ * as IOExceptions without registering any of its shapes.
+ */
+class SceneFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsSavedScene() throws IOException {
+        ShipModel model = new ShipModel();
+        model.add(new ArrayList<>(List.of(new Ship(10, 20), new Ship(30, 40))));
+        model.createGroup(new ArrayList<>(model.getShips()));
+        model.add(new ArrayList<>(List.of(new Ship(-5, 7))));
+        Path path = directory.resolve("scene.ships");
+        SceneFile.save(path, model.getShips());
+
+        ShipModel loaded = new ShipModel();
+        SceneFile.load(path, loaded);
+        assertEquals(2, loaded.getShips().size());
+        assertEquals(2, loaded.getShips().get(0).getChildren().size());
+        assertEquals(model.getShips().get(1).getLeft(), loaded.getShips().get(1).getLeft());
+    }
+
+    @Test
+    void rejectsCorruptHeaderWithoutRegisteringShapes() throws IOException {
+        int shapes = ShipShape.count();
+        ByteBuffer file = header(0, 0, 2);
+        shape(file, "half-read", 3);
+        // second shape claims more points than the file has
+        byte[] name = "corrupt".getBytes(StandardCharsets.UTF_8);
+        file.putShort((short) name.length).put(name).putInt(Integer.MAX_VALUE);
+
+        assertCorrupt(file);
+        assertNull(ShipShape.get("half-read"));
+        assertEquals(shapes, ShipShape.count());
+    }
+
+    @Test
+    void rejectsNegativeCounts() throws IOException {
+        assertCorrupt(header(-1, 0, 0));
+        assertCorrupt(header(0, 0, -1));
+        ByteBuffer file = header(1, 0, 0);
+        file.put(SceneFile.GROUP).putInt(-3);
+        assertCorrupt(file);
+    }
+
+    @Test
+    void rejectsUnknownShapeAndExtraShips() throws IOException {
+        ByteBuffer file = header(1, 1, 0);
+        file.put(SceneFile.SHIP).putInt(5).putDouble(0).putDouble(0);
+        assertCorrupt(file);
+
+        file = header(2, 1, 1);
+        shape(file, ShipShape.DEFAULT.name, ShipShape.DEFAULT.xs.length);
+        for (int i = 0; i < 2; i++) file.put(SceneFile.SHIP).putInt(0).putDouble(i).putDouble(i);
+        assertCorrupt(file);
+    }
+
+    /**
+     * Helper method to start a scene file in memory.
+     *
+     * @param items  : number of top-level items written in the header
+     * @param ships  : number of ships written in the header
+     * @param shapes : number of shapes written in the header
+     * @return : buffer positioned after the header
+     */
+    private static ByteBuffer header(long items, long ships, int shapes) {
+        ByteBuffer file = ByteBuffer.allocate(4096);
+        file.putInt(SceneFile.MAGIC).putInt(SceneFile.VERSION).putLong(items).putLong(ships).putInt(shapes);
+        return file;
+    }
+
+    /**
+     * Helper method to write a valid shape with the given number of points.
+     *
+     * @param file   : buffer to write to
+     * @param name   : name of the shape
+     * @param points : number of points of the outline
+     */
+    private static void shape(ByteBuffer file, String name, int points) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        file.putShort((short) bytes.length).put(bytes).putInt(points);
+        for (int i = 0; i < points; i++) file.putDouble(i * 10);
+        for (int i = 0; i < points; i++) file.putDouble(i % 2 * 10);
+    }
+
+    /**
+     * Helper method to check that loading a file fails with an IOException.
+     *
+     * @param file : content of the file, up to its position
+     * @throws IOException : if the file cannot be written
+     */
+    private void assertCorrupt(ByteBuffer file) throws IOException {
+        Path path = directory.resolve("corrupt.ships");
+        Files.write(path, Arrays.copyOf(file.array(), file.position()));
+        IOException e = assertThrows(IOException.class, () -> SceneFile.load(path, new ShipModel()));
+        assertTrue(e.getMessage().startsWith("Corrupt scene"), e.getMessage());
+    }
+}